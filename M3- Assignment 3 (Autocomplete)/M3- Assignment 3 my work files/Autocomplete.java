@@ -1,27 +1,125 @@
+import java.text.Normalizer;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Autocomplete.
+ *
+ * An instance is immutable once constructed, so every query method may be
+ * called from any number of threads at once without synchronization. The
+ * one exception is the optional metrics hook, which is safe to swap at any
+ * time.
  */
 public class Autocomplete {
 
-	private Term[] terms;
+	// smallest number of prefixes worth handing to a separate task
+	private static final int MIN_BATCH_CHUNK = 64;
+
+	// most edits a fuzzy match may need
+	private static final int MAX_EDITS = 2;
+
+	// default time allowed for one fuzzy lookup, in nanoseconds
+	private static final long FUZZY_BUDGET = 5_000_000L;
+
+	// orders a search key against a prefix by the key's first prefix.length()
+	// characters, compared in place
+	private static final Comparator<String> PREFIX_ORDER =
+		(key, prefix) -> Term.compareFirst(key, prefix, prefix.length());
+
+	private final Term[] terms;
+	private final String[] keys;
+	private final boolean folded;
+	private final long[] weights;
+	private final RangeMaxIndex index;
+	private final TermTrie trie;
+	private final EytzingerIndex<String> layout;
+	private volatile QueryMetrics metrics;
 
 	/**
 	 * Initializes a data structure from the given array of terms.
 	 * This method throws a NullPointerException if terms is null.
 	 */
 	public Autocomplete(Term[] terms) {
-	if (terms == null) {
-        throw new NullPointerException();
-    }
-    	this.terms = new Term[terms.length];
-    	for (int i = 0; i < terms.length; i++) { 
-    		this.terms[i] = terms[i];
-        }
-    	Arrays.sort(this.terms);
+		this(terms, 0);
+	}
+
+	/**
+	 * Initializes a data structure from the given array of terms, and also
+	 * builds a prefix trie that caches the k heaviest terms for every prefix
+	 * so that topMatches(prefix, j) with j <= k runs in time proportional to
+	 * the length of prefix plus j. This method throws a NullPointerException
+	 * if terms is null, and an IllegalArgumentException if k is negative.
+	 */
+	public Autocomplete(Term[] terms, int k) {
+		this(terms, k, false);
+	}
+
+	/**
+	 * Initializes a data structure from the given array of terms, as
+	 * Autocomplete(terms, k) does. If fold is true, matching ignores case and
+	 * accents, so that "cafe" also matches "Cafe" spelled with an accented e.
+	 * Every query is reduced once, here, to a folded search key, and all
+	 * searches run on those keys. The terms returned still carry their
+	 * original queries. This method throws
+	 * a NullPointerException if terms is null, and an
+	 * IllegalArgumentException if k is negative.
+	 */
+	public Autocomplete(Term[] terms, int k, boolean fold) {
+		this(k, fold, sortedCopy(terms, fold));
+	}
+
+	/**
+	 * Initializes a data structure that takes ownership of the sorted terms
+	 * and their search keys.
+	 */
+	private Autocomplete(int k, boolean fold, SortedTerms sorted) {
+		this(k, fold, sorted, new RangeMaxIndex(weightsOf(sorted.terms)));
+	}
+
+	/**
+	 * Initializes a data structure that takes ownership of the sorted terms,
+	 * their search keys, and a weight index already built over them.
+	 */
+	private Autocomplete(int k, boolean fold, SortedTerms sorted, RangeMaxIndex index) {
+		this(fold, sorted, index, trieOf(k, sorted.keys, index.weights()));
+	}
+
+	/**
+	 * Initializes a data structure that takes ownership of the sorted terms,
+	 * their search keys, a weight index, and a trie (or null) already built
+	 * over them.
+	 */
+	private Autocomplete(boolean fold, SortedTerms sorted, RangeMaxIndex index, TermTrie trie) {
+    	this.terms = sorted.terms;
+    	this.keys = sorted.keys;
+    	this.folded = fold;
+
+    	this.weights = index.weights();
+    	this.index = index;
+    	this.trie = trie;
+    	this.layout = null;
     }
 
+	/**
+	 * Initializes a data structure that shares everything with other except
+	 * the layout its prefix searches walk.
+	 */
+	private Autocomplete(Autocomplete other, EytzingerIndex<String> layout) {
+		this.terms = other.terms;
+		this.keys = other.keys;
+		this.folded = other.folded;
+		this.weights = other.weights;
+		this.index = other.index;
+		this.trie = other.trie;
+		this.layout = layout;
+	}
+
 	/** 
 	 * Returns all terms that start with the given prefix, in descending order of weight. 
 	 * This method throws a NullPointerException if prefix is null.
@@ -30,22 +128,475 @@ public class Autocomplete {
 	if (prefix == null) {
         throw new NullPointerException();
     }
+    	QueryMetrics observer = metrics;
+    	if (observer != null) {
+    		return observedMatches(prefix, observer);
+    	}
+    	prefix = keyOf(prefix);
     	
-    	int first = BinarySearch.firstIndexOf(terms, new Term(prefix, 0), Term.byPrefixOrder(prefix.length()));
-    	if (first == -1) {
+    	long range = prefixRange(prefix);
+    	int first = (int) (range >>> 32);
+    	int last  = (int) range - 1;
+    	if (first > last) {
             return new Term[0];
         }
-    	int last  = BinarySearch.lastIndexOf (terms, new Term(prefix, 0), Term.byPrefixOrder(prefix.length()));
-    	Term[] matched = new Term[1 + last - first];
+    	Term[] matched = WeightSort.descending(terms, weights, first, last + 1);
     	
-    	for (int i = 0; i < matched.length; i++) {
-    		matched[i] = terms[first++];
+		return matched;
+    }
+
+	/**
+	 * Starts reporting every allMatches call to the given metrics, or stops
+	 * reporting if metrics is null. While no metrics are set, allMatches does
+	 * no measuring at all.
+	 */
+	public void setMetrics(QueryMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the (at most) k heaviest terms that start with the given prefix,
+	 * in descending order of weight. This method throws a NullPointerException
+	 * if prefix is null, and an IllegalArgumentException if k is negative.
+	 */
+	public Term[] topMatches(String prefix, int k) {
+	if (prefix == null) {
+        throw new NullPointerException();
+    }
+		if (k < 0) {
+            throw new IllegalArgumentException();
         }
+		prefix = keyOf(prefix);
 
-    	Arrays.sort(matched, Term.byDescendingWeightOrder());
-    	
+		if (trie == null || k > trie.cacheSize()) {
+			long range = prefixRange(prefix);
+			return heaviest((int) (range >>> 32), (int) range - 1, k);
+		}
+		return fromTrie(prefix, k);
+	}
+
+	/**
+	 * Returns the (at most) k heaviest terms whose query starts with a string
+	 * within maxEdits (0, 1, or 2) edits of the given prefix, in descending
+	 * order of weight and then ascending number of edits. The search walks
+	 * the prefix trie near prefix and never scans the terms, gives up after
+	 * a few milliseconds with the matches found so far, and considers only
+	 * the terms cached in the trie. This method throws a NullPointerException
+	 * if prefix is null, an IllegalArgumentException if k is negative or
+	 * larger than the trie's cache size or maxEdits is out of range, and an
+	 * IllegalStateException if this instance was built without a trie.
+	 */
+	public Term[] fuzzyMatches(String prefix, int k, int maxEdits) {
+		return fuzzyMatches(prefix, k, maxEdits, FUZZY_BUDGET);
+	}
+
+	/**
+	 * Returns the same result as fuzzyMatches(prefix, k, maxEdits), but stops
+	 * searching after budgetNanos nanoseconds. This method throws an
+	 * IllegalArgumentException if budgetNanos is negative.
+	 */
+	public Term[] fuzzyMatches(String prefix, int k, int maxEdits, long budgetNanos) {
+	if (prefix == null) {
+        throw new NullPointerException();
+    }
+		if (k < 0 || maxEdits < 0 || maxEdits > MAX_EDITS || budgetNanos < 0) {
+            throw new IllegalArgumentException();
+        }
+		if (trie == null) {
+            throw new IllegalStateException();
+        }
+		if (k > trie.cacheSize()) {
+            throw new IllegalArgumentException();
+        }
+		prefix = keyOf(prefix);
+
+		long[] pairs = trie.fuzzy(prefix, maxEdits, System.nanoTime() + budgetNanos);
+		// Sort (edits, index) pairs, then stably by descending weight.
+		Arrays.sort(pairs);
+		int n = pairs.length;
+		long[] w = new long[n];
+		for (int i = 0; i < n; i++) {
+			w[i] = weights[(int) pairs[i]];
+		}
+		int[] order = WeightSort.order(w, 0, n);
+		Term[] matched = new Term[Math.min(k, n)];
+		for (int i = 0; i < matched.length; i++) {
+			matched[i] = terms[(int) pairs[order[i]]];
+		}
 		return matched;
+	}
+
+	/**
+	 * Returns, for each prefix, the same result as topMatches(prefix, k).
+	 * The prefixes are sorted first so that each binary search starts from
+	 * where its neighbour's ended, and the sorted batch is split across the
+	 * common fork-join pool. This method throws a NullPointerException if
+	 * prefixes or any prefix is null, and an IllegalArgumentException if k
+	 * is negative.
+	 */
+	public Term[][] allMatchesBatch(String[] prefixes, int k) {
+		return allMatchesBatch(prefixes, k, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Returns, for each prefix, the same result as topMatches(prefix, k),
+	 * running the work on the given executor. This method throws a
+	 * NullPointerException if prefixes, any prefix, or executor is null, and
+	 * an IllegalArgumentException if k is negative.
+	 */
+	public Term[][] allMatchesBatch(String[] prefixes, int k, Executor executor) {
+		if (prefixes == null || executor == null) {
+            throw new NullPointerException();
+        }
+		if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+		final String[] wanted = new String[prefixes.length];
+		for (int i = 0; i < prefixes.length; i++) {
+			if (prefixes[i] == null) {
+                throw new NullPointerException();
+            }
+			wanted[i] = keyOf(prefixes[i]);
+		}
+		final int[] order = IndexSort.sort(wanted.length, (a, b) -> wanted[a].compareTo(wanted[b]));
+
+		final Term[][] results = new Term[prefixes.length][];
+		int tasks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+			order.length / MIN_BATCH_CHUNK));
+		int chunk = (order.length + tasks - 1) / tasks;
+		if (tasks == 1) {
+			matchSorted(wanted, order, 0, order.length, k, results);
+			return results;
+		}
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks];
+		for (int t = 0; t < tasks; t++) {
+			final int from = Math.min(order.length, t * chunk);
+			final int to = Math.min(order.length, from + chunk);
+			futures[t] = CompletableFuture.runAsync(
+				() -> matchSorted(wanted, order, from, to, k, results), executor);
+		}
+		CompletableFuture.allOf(futures).join();
+		return results;
+	}
+
+	/**
+	 * Returns an iterator over all terms that start with the given prefix, in
+	 * descending order of weight. Terms are produced lazily, each in O(log n)
+	 * time, so a caller that only wants the first page of results never pays
+	 * for the rest of the match range. This method throws a
+	 * NullPointerException if prefix is null.
+	 */
+	public Iterator<Term> matchIterator(String prefix) {
+	if (prefix == null) {
+        throw new NullPointerException();
     }
+		prefix = keyOf(prefix);
 
-}
+		long range = prefixRange(prefix);
+		final RangeMaxIndex.Cursor cursor = index.cursor((int) (range >>> 32), (int) range - 1);
+
+		return new Iterator<Term>() {
+			@Override
+			public boolean hasNext() {
+				return cursor.hasNext();
+			}
+
+			@Override
+			public Term next() {
+				if (!cursor.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return terms[cursor.next()];
+			}
+		};
+	}
 
+	/**
+	 * Returns an Autocomplete that answers every query exactly as this one
+	 * does, but finds the range of terms matching a prefix in an Eytzinger
+	 * layout of the search keys (see EytzingerIndex) instead of the sorted
+	 * array, at the cost of one more reference and int per term. The layout
+	 * keeps the probes of a search close together, but each probe still
+	 * follows a reference to its key, so measure before choosing it (see
+	 * AutocompleteBenchmark). The two share all other state, so this one
+	 * stays usable; metrics are not carried over.
+	 */
+	public Autocomplete withEytzingerLayout() {
+		return new Autocomplete(this, new EytzingerIndex<String>(keys, PREFIX_ORDER));
+	}
+
+	/**
+	 * Returns an Autocomplete over terms, which must already be in ascending
+	 * lexicographic order. The array is used as is, without copying or
+	 * sorting, and must not be modified afterwards.
+	 */
+	static Autocomplete fromSorted(Term[] terms, int k) {
+		return new Autocomplete(k, false, new SortedTerms(terms, queries(terms)));
+	}
+
+	/**
+	 * Returns an Autocomplete over parts restored from a snapshot: terms and
+	 * their search keys, both in search order, and the weight index and
+	 * trie (or null) built over them. Nothing is sorted or checked here;
+	 * AutocompleteSnapshot validates the parts before calling this.
+	 */
+	static Autocomplete restore(Term[] terms, String[] keys, boolean folded,
+		RangeMaxIndex index, TermTrie trie) {
+		return new Autocomplete(folded, new SortedTerms(terms, keys), index, trie);
+	}
+
+	/**
+	 * Returns a trie over keys caching the k heaviest terms per node, or
+	 * null if k is 0. This method throws an IllegalArgumentException if k is
+	 * negative.
+	 */
+	private static TermTrie trieOf(int k, String[] keys, long[] weights) {
+		if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+		return k > 0 ? new TermTrie(keys, weights, k) : null;
+	}
+
+	/**
+	 * Returns the case- and accent-folded search key of s: its canonical
+	 * decomposition, with combining marks removed, in lower case.
+	 */
+	static String fold(String s) {
+		String decomposed = Normalizer.normalize(s, Normalizer.Form.NFD);
+		StringBuilder key = new StringBuilder(decomposed.length());
+		for (int i = 0; i < decomposed.length(); i++) {
+			char c = decomposed.charAt(i);
+			int type = Character.getType(c);
+			if (type != Character.NON_SPACING_MARK && type != Character.ENCLOSING_MARK
+				&& type != Character.COMBINING_SPACING_MARK) {
+				key.append(c);
+			}
+		}
+		return key.toString().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Returns the search key for a prefix given by a caller.
+	 */
+	private String keyOf(String prefix) {
+		return folded ? fold(prefix) : prefix;
+	}
+
+	/**
+	 * Returns a copy of terms sorted by search key, together with the keys,
+	 * sorting in parallel on large arrays. This method throws a
+	 * NullPointerException if terms is null.
+	 */
+	private static SortedTerms sortedCopy(Term[] terms, boolean fold) {
+	if (terms == null) {
+        throw new NullPointerException();
+    }
+		Term[] copy = Arrays.copyOf(terms, terms.length);
+		if (!fold) {
+			Arrays.parallelSort(copy);
+			return new SortedTerms(copy, queries(copy));
+		}
+
+		final String[] folded = new String[copy.length];
+		for (int i = 0; i < copy.length; i++) {
+			folded[i] = fold(copy[i].query());
+		}
+		int[] order = IndexSort.parallelSort(copy.length, (a, b) -> {
+			int c = folded[a].compareTo(folded[b]);
+			return c != 0 ? c : copy[a].compareTo(copy[b]);
+		});
+		Term[] sorted = new Term[copy.length];
+		String[] keys = new String[copy.length];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = copy[order[i]];
+			keys[i] = folded[order[i]];
+		}
+		return new SortedTerms(sorted, keys);
+	}
+
+	/**
+	 * Returns the queries of terms, which serve as search keys when
+	 * matching is exact.
+	 */
+	private static String[] queries(Term[] terms) {
+		String[] queries = new String[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			queries[i] = terms[i].query();
+		}
+		return queries;
+	}
+
+	/**
+	 * Returns the weights of terms.
+	 */
+	private static long[] weightsOf(Term[] terms) {
+		long[] weights = new long[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			weights[i] = terms[i].weight();
+		}
+		return weights;
+	}
+
+	/**
+	 * Returns the terms in lexicographic order. The array is shared, not
+	 * copied, and must not be modified.
+	 */
+	Term[] terms() {
+		return terms;
+	}
+
+	/**
+	 * Returns the search keys, parallel to terms(). The array is shared.
+	 */
+	String[] keys() {
+		return keys;
+	}
+
+	/**
+	 * Returns true if matching ignores case and accents.
+	 */
+	boolean folded() {
+		return folded;
+	}
+
+	/**
+	 * Returns the weight index over terms().
+	 */
+	RangeMaxIndex index() {
+		return index;
+	}
+
+	/**
+	 * Returns the number of results cached per prefix by the trie, or 0 if
+	 * there is no trie.
+	 */
+	int cacheSize() {
+		return trie == null ? 0 : trie.cacheSize();
+	}
+
+	/**
+	 * Returns the prefix trie, or null if there is none.
+	 */
+	TermTrie trie() {
+		return trie;
+	}
+
+	/**
+	 * Returns the range of terms whose search keys start with prefix, which
+	 * must itself be a search key, packed as the first index in the high 32
+	 * bits and one past the last index in the low 32 bits; the range is
+	 * empty when the two are equal. Characters are compared in place, so
+	 * the search allocates nothing.
+	 */
+	long prefixRange(String prefix) {
+		return range(prefix, 0, terms.length, null);
+	}
+
+	/**
+	 * Returns the packed range (see prefixRange) of terms in [first, last)
+	 * that start with prefix, using the equal-range search of BinarySearch
+	 * with search keys cut to the length of prefix, or of the Eytzinger
+	 * layout when there is one and the whole array is searched. If
+	 * comparisons is not null, its first element is increased by the number
+	 * of key comparisons made.
+	 */
+	private long range(String prefix, int first, int last, final int[] comparisons) {
+		Comparator<String> order = PREFIX_ORDER;
+		if (comparisons != null) {
+			order = (key, p) -> {
+				comparisons[0]++;
+				return PREFIX_ORDER.compare(key, p);
+			};
+		}
+		if (layout != null && first == 0 && last == terms.length) {
+			return layout.range(prefix, order);
+		}
+		return BinarySearch.equalRange(keys, prefix, order, first, last);
+	}
+
+	/**
+	 * Does the work of allMatches for a prefix while measuring it, from
+	 * folding the prefix into a search key to the sorted result, and
+	 * reports the measurements to observer.
+	 */
+	private Term[] observedMatches(String prefix, QueryMetrics observer) {
+		long start = System.nanoTime();
+		prefix = keyOf(prefix);
+		int[] comparisons = new int[1];
+		long range = range(prefix, 0, terms.length, comparisons);
+		int first = (int) (range >>> 32);
+		int last = (int) range;
+		long sortStart = System.nanoTime();
+		Term[] matched = WeightSort.descending(terms, weights, first, last);
+		long end = System.nanoTime();
+		observer.record(end - start, last - first, comparisons[0], end - sortStart);
+		return matched;
+	}
+
+	/**
+	 * Answers prefixes[order[from..to)], which must be in ascending order.
+	 * A prefix is never less than the one before it, so its lower bound
+	 * search starts at the previous lower bound, and when it extends the
+	 * previous prefix its whole range lies inside the previous range.
+	 */
+	private void matchSorted(String[] prefixes, int[] order, int from, int to,
+		int k, Term[][] results) {
+		boolean cached = trie != null && k <= trie.cacheSize();
+		String previous = null;
+		int lower = 0;
+		int upper = terms.length;
+		for (int i = from; i < to; i++) {
+			String prefix = prefixes[order[i]];
+			if (cached) {
+				results[order[i]] = fromTrie(prefix, k);
+				continue;
+			}
+			int limit = previous != null && prefix.startsWith(previous) ? upper : terms.length;
+			long range = range(prefix, lower, limit, null);
+			lower = (int) (range >>> 32);
+			upper = (int) range;
+			results[order[i]] = heaviest(lower, upper - 1, k);
+			previous = prefix;
+		}
+	}
+
+	/**
+	 * Returns the (at most) k heaviest terms in terms[first..last], in
+	 * descending order of weight, without copying the range.
+	 */
+	private Term[] heaviest(int first, int last, int k) {
+		RangeMaxIndex.Cursor cursor = index.cursor(first, last);
+		Term[] matched = new Term[Math.min(k, Math.max(0, last - first + 1))];
+		for (int i = 0; i < matched.length; i++) {
+			matched[i] = terms[cursor.next()];
+		}
+		return matched;
+	}
+
+	/**
+	 * Returns the (at most) k heaviest terms that start with prefix, read
+	 * from the trie. This requires k <= trie.cacheSize().
+	 */
+	private Term[] fromTrie(String prefix, int k) {
+		int[] top = trie.top(prefix, k);
+		Term[] matched = new Term[top.length];
+		for (int i = 0; i < matched.length; i++) {
+			matched[i] = terms[top[i]];
+		}
+		return matched;
+	}
+
+	/**
+	 * Terms in search key order, paired with their search keys.
+	 */
+	private static class SortedTerms {
+		private final Term[] terms;
+		private final String[] keys;
+
+		private SortedTerms(Term[] terms, String[] keys) {
+			this.terms = terms;
+			this.keys = keys;
+		}
+	}
+
+}
@@ -0,0 +1,280 @@
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+
+/**
+ * AutocompleteBenchmark.java
+ * Benchmark suite for Autocomplete, Term, and BinarySearch over synthetic
+ * Zipf dictionaries. Each case runs warmup rounds before it is measured and
+ * reports the mean of several measured rounds. Cases:
+ *   construction   time to build an Autocomplete, by number of terms
+ *   allMatches     latency by prefix length, with the mean match-range size
+ *   topMatches     latency of the first 10 results, with and without trie
+ *   comparator     cost of one Term.byPrefixOrder comparison, against
+ *                  the original comparator that cut substrings
+ *   binarySearch   latency of a prefix-range lookup through BinarySearch,
+ *                  with probe terms and substrings, with probe terms and
+ *                  Term.byPrefixOrder, or in place over the search keys
+ *                  in sorted or Eytzinger order
+ *   allocation     bytes allocated per query; exits with status 1 if the
+ *                  in-place prefix search allocates more than
+ *                  MAX_BYTES_PER_LOOKUP bytes per lookup, or if the
+ *                  original probe and substring search does not allocate
+ *                  more than it, since then nothing was measured
+ * Usage: java AutocompleteBenchmark [maxTerms]
+ */
+public class AutocompleteBenchmark {
+
+    // number of warmup and measured rounds per case
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    // queries per round
+    private static final int QUERIES = 2_000;
+
+    // Zipf exponent and seed of every dictionary
+    private static final double ZIPF = 1.0;
+    private static final long SEED = 2210L;
+
+    // results kept per query by topMatches
+    private static final int TOP = 10;
+
+    // most bytes the in-place prefix search may allocate per lookup
+    private static final double MAX_BYTES_PER_LOOKUP = 1.0;
+
+    private static long sink;
+
+    /** Drives execution. */
+    public static void main(String[] args) {
+        int maxTerms = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        System.out.println("== construction ==");
+        for (int n = 10_000; n <= maxTerms; n *= 10) {
+            final Term[] terms = SyntheticDictionary.generate(n, ZIPF, SEED);
+            report("n=" + n, measure(() -> sink += new Autocomplete(terms).terms().length), "ms",
+                1e-6);
+            report("n=" + n + " +trie", measure(() -> sink += new Autocomplete(terms, TOP)
+                .terms().length), "ms", 1e-6);
+        }
+
+        Term[] terms = SyntheticDictionary.generate(maxTerms, ZIPF, SEED);
+        final Autocomplete plain = new Autocomplete(terms);
+        final Autocomplete withTrie = new Autocomplete(terms, TOP);
+        final Autocomplete eytzinger = plain.withEytzingerLayout();
+
+        System.out.println("== allMatches (n=" + maxTerms + ") ==");
+        for (int length = 1; length <= 4; length++) {
+            final String[] prefixes = SyntheticDictionary.prefixes(terms, QUERIES, length, SEED);
+            long matched = 0;
+            for (String p : prefixes) {
+                long range = plain.prefixRange(p);
+                matched += (int) range - (int) (range >>> 32);
+            }
+            report("prefix length " + length + ", mean range " + matched / QUERIES,
+                perQuery(measure(() -> {
+                    for (String p : prefixes) {
+                        sink += plain.allMatches(p).length;
+                    }
+                })), "us/op", 1e-3);
+        }
+
+        System.out.println("== topMatches(" + TOP + ") ==");
+        for (int length = 1; length <= 4; length++) {
+            final String[] prefixes = SyntheticDictionary.prefixes(terms, QUERIES, length, SEED);
+            report("prefix length " + length + ", cursor", perQuery(measure(() -> {
+                for (String p : prefixes) {
+                    sink += plain.topMatches(p, TOP).length;
+                }
+            })), "us/op", 1e-3);
+            report("prefix length " + length + ", trie", perQuery(measure(() -> {
+                for (String p : prefixes) {
+                    sink += withTrie.topMatches(p, TOP).length;
+                }
+            })), "us/op", 1e-3);
+        }
+
+        System.out.println("== comparator ==");
+        final Term[] sorted = plain.terms();
+        for (int length = 1; length <= 8; length *= 2) {
+            final Comparator<Term> byPrefix = Term.byPrefixOrder(length);
+            report("byPrefixOrder(" + length + ")", perQuery(measure(() -> {
+                for (int i = 1; i <= QUERIES; i++) {
+                    sink += byPrefix.compare(sorted[(i * 7919) % sorted.length],
+                        sorted[(i * 104_729) % sorted.length]);
+                }
+            })), "ns/op", 1);
+            final Comparator<Term> bySubstring = new SubstringPrefixOrder(length);
+            report("substring prefix order(" + length + ")", perQuery(measure(() -> {
+                for (int i = 1; i <= QUERIES; i++) {
+                    sink += bySubstring.compare(sorted[(i * 7919) % sorted.length],
+                        sorted[(i * 104_729) % sorted.length]);
+                }
+            })), "ns/op", 1);
+        }
+
+        System.out.println("== binarySearch ==");
+        for (int length = 1; length <= 4; length++) {
+            final String[] prefixes = SyntheticDictionary.prefixes(terms, QUERIES, length, SEED);
+            report("prefix length " + length + ", firstIndexOf + lastIndexOf",
+                perQuery(measure(() -> {
+                    for (String p : prefixes) {
+                        sink += probeRange(sorted, p);
+                    }
+                })), "ns/op", 1);
+            report("prefix length " + length + ", equalRange, substrings",
+                perQuery(measure(() -> {
+                    for (String p : prefixes) {
+                        sink += BinarySearch.equalRange(sorted, new Term(p, 0),
+                            new SubstringPrefixOrder(p.length()))[0];
+                    }
+                })), "ns/op", 1);
+            report("prefix length " + length + ", equalRange",
+                perQuery(measure(() -> {
+                    for (String p : prefixes) {
+                        sink += BinarySearch.equalRange(sorted, new Term(p, 0),
+                            Term.byPrefixOrder(p.length()))[0];
+                    }
+                })), "ns/op", 1);
+            report("prefix length " + length + ", in place (prefixRange)",
+                perQuery(measure(() -> {
+                    for (String p : prefixes) {
+                        sink += plain.prefixRange(p);
+                    }
+                })), "ns/op", 1);
+            report("prefix length " + length + ", in place, Eytzinger",
+                perQuery(measure(() -> {
+                    for (String p : prefixes) {
+                        sink += eytzinger.prefixRange(p);
+                    }
+                })), "ns/op", 1);
+        }
+
+        System.out.println("== allocation ==");
+        final String[] prefixes = SyntheticDictionary.prefixes(terms, QUERIES, 2, SEED);
+        report("allMatches", allocationPerQuery(() -> {
+            for (String p : prefixes) {
+                sink += plain.allMatches(p).length;
+            }
+        }), "B/op", 1);
+        report("topMatches, cursor", allocationPerQuery(() -> {
+            for (String p : prefixes) {
+                sink += plain.topMatches(p, TOP).length;
+            }
+        }), "B/op", 1);
+        report("topMatches, trie", allocationPerQuery(() -> {
+            for (String p : prefixes) {
+                sink += withTrie.topMatches(p, TOP).length;
+            }
+        }), "B/op", 1);
+        double original = allocationPerQuery(() -> {
+            for (String p : prefixes) {
+                sink += probeRange(sorted, p);
+            }
+        });
+        report("probe + substring search", original, "B/op", 1);
+        double inPlace = allocationPerQuery(() -> {
+            for (String p : prefixes) {
+                sink += plain.prefixRange(p);
+            }
+        });
+        report("prefixRange", inPlace, "B/op", 1);
+
+        System.out.println("(checksum " + sink + ")");
+        if (inPlace > MAX_BYTES_PER_LOOKUP) {
+            System.err.println("prefixRange allocates more than " + MAX_BYTES_PER_LOOKUP
+                + " bytes/lookup");
+            System.exit(1);
+        }
+        if (original <= inPlace) {
+            System.err.println("the probe + substring search allocates no more than"
+                + " prefixRange; the allocation counter measured nothing");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Finds the range of sorted that starts with prefix the original way,
+     * with probe terms and a comparator that cuts substrings, and returns
+     * its size.
+     */
+    private static int probeRange(Term[] sorted, String prefix) {
+        int first = BinarySearch.firstIndexOf(sorted, new Term(prefix, 0),
+            new SubstringPrefixOrder(prefix.length()));
+        if (first == -1) {
+            return 0;
+        }
+        return BinarySearch.lastIndexOf(sorted, new Term(prefix, 0),
+            new SubstringPrefixOrder(prefix.length())) - first + 1;
+    }
+
+    /**
+     * Runs task for the warmup rounds, then returns the mean time in
+     * nanoseconds of the measured rounds.
+     */
+    private static double measure(Runnable task) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.run();
+        }
+        long total = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            total += System.nanoTime() - start;
+        }
+        return (double) total / MEASURED_ROUNDS;
+    }
+
+    /**
+     * Runs task after warming it up and returns the bytes it allocated per
+     * query on this thread.
+     */
+    private static double allocationPerQuery(Runnable task) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.run();
+        }
+        com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(id);
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            task.run();
+        }
+        return (double) (bean.getThreadAllocatedBytes(id) - before) / MEASURED_ROUNDS / QUERIES;
+    }
+
+    /**
+     * Converts a per-round time to a per-query time.
+     */
+    private static double perQuery(double nanosPerRound) {
+        return nanosPerRound / QUERIES;
+    }
+
+    /**
+     * Prints one result line, scaling value by scale into unit.
+     */
+    private static void report(String name, double value, String unit, double scale) {
+        System.out.printf("%-44s%12.3f %s\n", name, value * scale, unit);
+    }
+
+    /**
+     * The original Term.byPrefixOrder comparator, kept here as the baseline:
+     * it compares the first length characters of two queries by cutting
+     * them out as substrings.
+     */
+    private static class SubstringPrefixOrder implements Comparator<Term> {
+        private final int length;
+
+        private SubstringPrefixOrder(int length) {
+            this.length = length;
+        }
+
+        @Override
+        public int compare(Term one, Term two) {
+            String prefixA = one.query().length() < length
+                ? one.query() : one.query().substring(0, length);
+            String prefixB = two.query().length() < length
+                ? two.query() : two.query().substring(0, length);
+            return prefixA.compareTo(prefixB);
+        }
+    }
+
+}
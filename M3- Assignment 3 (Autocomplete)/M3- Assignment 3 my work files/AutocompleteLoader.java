@@ -0,0 +1,181 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Builds an Autocomplete straight from a term file. Each line holds a
+ * weight, a tab, and a query; leading blanks are ignored, and lines without
+ * a tab (such as the count on the first line of the standard files) are
+ * skipped. The file is memory-mapped in chunks that end on line
+ * boundaries, the chunks are parsed in parallel, and the terms are sorted
+ * with a parallel sort, so building scales with the number of cores.
+ */
+public class AutocompleteLoader {
+
+    // target size of one parse chunk
+    private static final long CHUNK_BYTES = 64L << 20;
+
+    /**
+     * Returns an Autocomplete over the terms in file (see Autocomplete(Term[],
+     * int) for k). This method throws an IOException if the file cannot be
+     * read, and an IllegalArgumentException if a line has a malformed weight.
+     */
+    public static Autocomplete load(Path file, int k) throws IOException {
+        return Autocomplete.fromSorted(loadTerms(file), k);
+    }
+
+    /**
+     * Returns the terms in file in ascending lexicographic order. This
+     * method throws an IOException if the file cannot be read, and an
+     * IllegalArgumentException if a line has a malformed weight.
+     */
+    public static Term[] loadTerms(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            Term[][] parsed;
+            try {
+                parsed = IntStream.range(0, bounds.length - 1).parallel()
+                    .mapToObj(i -> parse(channel, bounds[i], bounds[i + 1]))
+                    .toArray(Term[][]::new);
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int total = 0;
+            for (Term[] chunk : parsed) {
+                total += chunk.length;
+            }
+            Term[] terms = new Term[total];
+            int pos = 0;
+            for (Term[] chunk : parsed) {
+                System.arraycopy(chunk, 0, terms, pos, chunk.length);
+                pos += chunk.length;
+            }
+            Arrays.parallelSort(terms);
+            return terms;
+        }
+    }
+
+    /**
+     * Splits the file into chunks of about CHUNK_BYTES (and at least one per
+     * core), each starting right after a newline. Returns the chunk start
+     * offsets followed by the file size.
+     */
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int cores = Runtime.getRuntime().availableProcessors();
+        long chunks = Math.max(cores, (size + CHUNK_BYTES - 1) / CHUNK_BYTES);
+        long step = Math.max(1, size / chunks);
+
+        List<Long> bounds = new ArrayList<Long>();
+        bounds.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = step;
+        while (position < size) {
+            long newline = nextNewline(channel, position - 1, buffer);
+            if (newline < 0 || newline + 1 >= size) {
+                break;
+            }
+            if (newline + 1 > bounds.get(bounds.size() - 1)) {
+                bounds.add(newline + 1);
+            }
+            position = Math.max(position + step, newline + 2);
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the offset of the first newline at or after from, or -1.
+     */
+    private static long nextNewline(FileChannel channel, long from, ByteBuffer buffer)
+        throws IOException {
+        long position = from;
+        while (true) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i;
+                }
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * Parses the lines in [start, end) of the file.
+     */
+    private static Term[] parse(FileChannel channel, long start, long end) {
+        MappedByteBuffer map;
+        try {
+            map = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Term> terms = new ArrayList<Term>();
+        byte[] query = new byte[256];
+        int limit = map.limit();
+        int i = 0;
+        while (i < limit) {
+            int lineEnd = i;
+            while (lineEnd < limit && map.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int last = lineEnd;
+            if (last > i && map.get(last - 1) == '\r') {
+                last--;
+            }
+
+            int p = i;
+            while (p < last && (map.get(p) == ' ' || map.get(p) == '\t')) {
+                p++;
+            }
+            int tab = p;
+            while (tab < last && map.get(tab) != '\t') {
+                tab++;
+            }
+            if (tab < last) {
+                long weight = 0;
+                for (int d = p; d < tab; d++) {
+                    int digit = map.get(d) - '0';
+                    if (digit < 0 || digit > 9) {
+                        throw new IllegalArgumentException("bad weight at byte " + (start + i));
+                    }
+                    weight = 10 * weight + digit;
+                }
+                int length = last - tab - 1;
+                if (query.length < length) {
+                    query = new byte[Math.max(length, 2 * query.length)];
+                }
+                for (int q = 0; q < length; q++) {
+                    query[q] = map.get(tab + 1 + q);
+                }
+                terms.add(new Term(new String(query, 0, length, StandardCharsets.UTF_8), weight));
+            }
+            i = lineEnd + 1;
+        }
+        return terms.toArray(new Term[terms.size()]);
+    }
+
+}
@@ -0,0 +1,91 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * AutocompleteLoaderTest.java
+ * JUnit tests for parsing term files in the AutocompleteLoader class.
+ */
+public class AutocompleteLoaderTest {
+
+    private Path file;
+
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("terms", ".txt");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testLoadTermsSkipsCountAndSorts() throws IOException {
+        write("3\n   20\tcat\n    5\tapple\n   7\tbanana\n");
+        String expected = "[apple\t5, banana\t7, cat\t20]";
+        String actual = Arrays.toString(AutocompleteLoader.loadTerms(file));
+        assertEquals("\nloadTerms of a standard three-term file\n", expected, actual);
+    }
+
+    @Test
+    public void testWindowsLineEndsAndNoFinalNewline() throws IOException {
+        write("2\r\n 4\tb c\r\n 9\ta\tb");
+        String expected = "[a\tb\t9, b c\t4]";
+        String actual = Arrays.toString(AutocompleteLoader.loadTerms(file));
+        assertEquals("\nloadTerms with CRLF lines and a tab in a query\n", expected, actual);
+    }
+
+    @Test
+    public void testUtf8Queries() throws IOException {
+        write("1\t\u00e9t\u00e9\n2\tzoo\n3\tcaf\u00e9\n");
+        String expected = "[caf\u00e9\t3, zoo\t2, \u00e9t\u00e9\t1]";
+        String actual = Arrays.toString(AutocompleteLoader.loadTerms(file));
+        assertEquals("\nloadTerms with accented queries\n", expected, actual);
+    }
+
+    @Test
+    public void testLoadAnswersLikeAutocomplete() throws IOException {
+        // enough lines to be split into several chunks on a multi-core machine
+        StringBuilder lines = new StringBuilder("1000\n");
+        Term[] terms = new Term[1000];
+        for (int i = 0; i < terms.length; i++) {
+            String query = Integer.toString(i * 7 % 1000, 4);
+            terms[i] = new Term(query, i % 13);
+            lines.append("  ").append(i % 13).append('\t').append(query).append('\n');
+        }
+        write(lines.toString());
+        Autocomplete expected = new Autocomplete(terms, 5);
+        Autocomplete actual = AutocompleteLoader.load(file, 5);
+        for (String prefix : new String[] {"", "1", "2", "13", "302", "4"}) {
+            assertEquals("\nallMatches(" + prefix + ")\n",
+                Arrays.toString(expected.allMatches(prefix)),
+                Arrays.toString(actual.allMatches(prefix)));
+            assertEquals("\ntopMatches(" + prefix + ", 5)\n",
+                Arrays.toString(expected.topMatches(prefix, 5)),
+                Arrays.toString(actual.topMatches(prefix, 5)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedWeight() throws IOException {
+        write("2\n 12x\tcat\n 3\tdog\n");
+        AutocompleteLoader.loadTerms(file);
+    }
+
+    /**
+     * Replaces the contents of file with text in UTF-8.
+     */
+    private void write(String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
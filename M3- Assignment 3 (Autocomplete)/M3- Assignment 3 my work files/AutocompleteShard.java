@@ -0,0 +1,15 @@
+/**
+ * One shard of a ShardedAutocomplete: an Autocomplete over a contiguous
+ * lexicographic range of the terms, possibly in another process.
+ */
+public interface AutocompleteShard {
+
+    /**
+     * Returns the (at most) k heaviest terms of this shard that start with
+     * prefix, in descending order of weight, with ties in ascending
+     * lexicographic order. A shard that cannot be reached throws an
+     * UncheckedIOException.
+     */
+    Term[] topMatches(String prefix, int k);
+
+}
@@ -0,0 +1,276 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary snapshot of a fully built Autocomplete. A snapshot holds
+ * the terms in search order, their folded search keys if matching is
+ * folded, the weight index, and the prefix trie's nodes with their cached
+ * top-k lists, so loading one only maps the file, checks it, and decodes
+ * the columns: nothing is parsed from text, sorted, or recomputed. Version
+ * 1 snapshots, which did not store the trie, are still read; their trie is
+ * rebuilt from the keys.
+ *
+ * Layout (big-endian): a 24-byte header of magic, version, flags, trie
+ * size, term count, and the CRC-32 of those five ints; then the sections
+ * weights, queries, keys (folded only), tree, and trie. Each section is its
+ * byte length and CRC-32 as two longs, then the bytes, padded to a multiple
+ * of 8. A string section is n + 1 int offsets followed by UTF-8 bytes. The
+ * trie section holds the ints of TermTrie.layout(), and is empty when there
+ * is no trie. The format limits a snapshot to 2 GB.
+ */
+public class AutocompleteSnapshot {
+
+    private static final int MAGIC = 0x41435350; // "ACSP"
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_TRIE = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int FOLDED = 1;
+
+    /**
+     * Writes autocomplete to file. This method throws a
+     * NullPointerException if any argument is null, and an IOException if
+     * the file cannot be written or the snapshot would exceed 2 GB.
+     */
+    public static void write(Autocomplete autocomplete, Path file) throws IOException {
+        if (autocomplete == null || file == null) {
+            throw new NullPointerException();
+        }
+        Term[] terms = autocomplete.terms();
+        int n = terms.length;
+        boolean folded = autocomplete.folded();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(folded ? FOLDED : 0)
+            .putInt(autocomplete.cacheSize()).putInt(n);
+        header.putInt((int) crc(header, 0, 20)).flip();
+
+        ByteBuffer weights = ByteBuffer.allocate(8 * n);
+        for (long w : autocomplete.index().weights()) {
+            weights.putLong(w);
+        }
+        String[] queries = new String[n];
+        for (int i = 0; i < n; i++) {
+            queries[i] = terms[i].query();
+        }
+        ByteBuffer tree = ByteBuffer.allocate(4 * 2 * n);
+        for (int t : autocomplete.index().tree()) {
+            tree.putInt(t);
+        }
+
+        TermTrie trie = autocomplete.trie();
+        int[] layout = trie == null ? new int[0] : trie.layout();
+        ByteBuffer nodes = ByteBuffer.allocate(4 * layout.length);
+        nodes.asIntBuffer().put(layout);
+
+        ByteBuffer[] sections = folded
+            ? new ByteBuffer[] {flipped(weights), strings(queries),
+                strings(autocomplete.keys()), flipped(tree), nodes}
+            : new ByteBuffer[] {flipped(weights), strings(queries), flipped(tree), nodes};
+
+        long total = HEADER_BYTES;
+        ByteBuffer[] all = new ByteBuffer[1 + 3 * sections.length];
+        all[0] = header;
+        for (int s = 0; s < sections.length; s++) {
+            int length = sections[s].remaining();
+            ByteBuffer frame = ByteBuffer.allocate(16);
+            frame.putLong(length).putLong(crc(sections[s], 0, length)).flip();
+            all[1 + 3 * s] = frame;
+            all[2 + 3 * s] = sections[s];
+            all[3 + 3 * s] = ByteBuffer.allocate(padding(length));
+            total += 16 + length + padding(length);
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("snapshot too large: " + total + " bytes");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long written = 0;
+            while (written < total) {
+                written += channel.write(all);
+            }
+        }
+    }
+
+    /**
+     * Returns the Autocomplete saved in file. Every section is checked
+     * against its checksum, the keys are checked to be in order, and the
+     * trie nodes to be well formed over them, so a damaged or foreign file
+     * is rejected rather than answering wrongly.
+     * This method throws a NullPointerException if file is null, and an
+     * IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public static Autocomplete read(Path file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("not a snapshot: " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt(0) != MAGIC) {
+                throw new IOException("not a snapshot: " + file);
+            }
+            int version = map.getInt(4);
+            if (version != VERSION && version != VERSION_WITHOUT_TRIE) {
+                throw new IOException("unsupported snapshot version " + version);
+            }
+            if (map.getInt(20) != (int) crc(map, 0, 20)) {
+                throw new IOException("damaged snapshot header: " + file);
+            }
+            boolean folded = (map.getInt(8) & FOLDED) != 0;
+            int k = map.getInt(12);
+            int n = map.getInt(16);
+            if (k < 0 || n < 0) {
+                throw new IOException("damaged snapshot header: " + file);
+            }
+
+            int[] at = {HEADER_BYTES};
+            ByteBuffer weightBytes = section(map, at, 8L * n);
+            long[] weights = new long[n];
+            weightBytes.asLongBuffer().get(weights);
+            String[] queries = strings(section(map, at, -1), n);
+            String[] keys = folded ? strings(section(map, at, -1), n) : queries;
+            int[] tree = new int[2 * n];
+            section(map, at, 4L * 2 * n).asIntBuffer().get(tree);
+            int[] layout = null;
+            if (version != VERSION_WITHOUT_TRIE) {
+                ByteBuffer nodes = section(map, at, -1);
+                if (nodes.limit() % 4 != 0 || (k == 0 && nodes.limit() != 0)) {
+                    throw new IOException("bad trie section in snapshot: " + file);
+                }
+                layout = new int[nodes.limit() / 4];
+                nodes.asIntBuffer().get(layout);
+            }
+            if (at[0] != map.limit()) {
+                throw new IOException("trailing bytes in snapshot: " + file);
+            }
+
+            try {
+                Term[] terms = new Term[n];
+                for (int i = 0; i < n; i++) {
+                    terms[i] = new Term(queries[i], weights[i]);
+                    if (i > 0 && keys[i - 1].compareTo(keys[i]) > 0) {
+                        throw new IllegalArgumentException("keys out of order at " + i);
+                    }
+                }
+                TermTrie trie = null;
+                if (k > 0) {
+                    trie = layout == null ? new TermTrie(keys, weights, k)
+                        : new TermTrie(keys, weights, k, layout);
+                }
+                return Autocomplete.restore(terms, keys, folded,
+                    new RangeMaxIndex(weights, tree), trie);
+            }
+            catch (IllegalArgumentException e) {
+                throw new IOException("invalid snapshot: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Checks the section that starts at at[0] and returns its bytes,
+     * advancing at[0] past it. If expected is not negative, the section
+     * must be exactly that long.
+     */
+    private static ByteBuffer section(ByteBuffer map, int[] at, long expected) throws IOException {
+        int start = at[0];
+        if (map.limit() - start < 16) {
+            throw new IOException("truncated snapshot");
+        }
+        long length = map.getLong(start);
+        long crc = map.getLong(start + 8);
+        if (length < 0 || length > map.limit() - start - 16
+            || (expected >= 0 && length != expected)) {
+            throw new IOException("bad section length " + length);
+        }
+        if (crc(map, start + 16, (int) length) != crc) {
+            throw new IOException("checksum mismatch in section at byte " + start);
+        }
+        at[0] = start + 16 + (int) length + padding((int) length);
+        ByteBuffer slice = map.duplicate();
+        slice.limit(start + 16 + (int) length).position(start + 16);
+        return slice.slice();
+    }
+
+    /**
+     * Encodes strings as a string section.
+     */
+    private static ByteBuffer strings(String[] strings) throws IOException {
+        byte[][] bytes = new byte[strings.length][];
+        long length = 4L * (strings.length + 1);
+        for (int i = 0; i < strings.length; i++) {
+            bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+            length += bytes[i].length;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("snapshot too large");
+        }
+        ByteBuffer section = ByteBuffer.allocate((int) length);
+        int offset = 0;
+        section.putInt(offset);
+        for (byte[] b : bytes) {
+            offset += b.length;
+            section.putInt(offset);
+        }
+        for (byte[] b : bytes) {
+            section.put(b);
+        }
+        section.flip();
+        return section;
+    }
+
+    /**
+     * Decodes the n strings of a string section.
+     */
+    private static String[] strings(ByteBuffer section, int n) throws IOException {
+        long dataAt = 4L * (n + 1);
+        if (section.limit() < dataAt) {
+            throw new IOException("truncated string section");
+        }
+        int dataLength = section.limit() - (int) dataAt;
+        byte[] data = new byte[dataLength];
+        section.position((int) dataAt);
+        section.get(data);
+        String[] strings = new String[n];
+        int from = section.getInt(0);
+        for (int i = 0; i < n; i++) {
+            int to = section.getInt(4 * (i + 1));
+            if (from < 0 || to < from || to > dataLength) {
+                throw new IOException("bad string offset " + to);
+            }
+            strings[i] = new String(data, from, to - from, StandardCharsets.UTF_8);
+            from = to;
+        }
+        return strings;
+    }
+
+    private static ByteBuffer flipped(ByteBuffer buffer) {
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int padding(int length) {
+        return -length & 7;
+    }
+
+    /**
+     * Returns the CRC-32 of buffer[from, from + length), leaving the
+     * buffer's position and limit unchanged.
+     */
+    private static long crc(ByteBuffer buffer, int from, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(from + length).position(from);
+        CRC32 crc = new CRC32();
+        crc.update(view);
+        return crc.getValue();
+    }
+
+}
@@ -0,0 +1,161 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * AutocompleteSnapshotTest.java
+ * JUnit tests for writing and reading snapshots with AutocompleteSnapshot.
+ */
+public class AutocompleteSnapshotTest {
+
+    private static final String[] PREFIXES = {"", "s", "sa", "san", "sao", "s\u00e3", "t", "z"};
+
+    private Term[] terms;
+    private Path file;
+
+    @Before
+    public void setup() throws IOException {
+        terms = new Term[] {
+            new Term("San Diego", 1_400_000), new Term("santa fe", 88_000),
+            new Term("S\u00e3o Paulo", 12_300_000), new Term("sandwich", 300),
+            new Term("Sana'a", 2_500_000), new Term("tokyo", 37_000_000),
+            new Term("sao tome", 80_000), new Term("Santa Fe", 88_000),
+        };
+        file = Files.createTempFile("autocomplete", ".snap");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /** Test case for a snapshot of an index with a trie. */
+    @Test
+    public void testRoundTrip() throws IOException {
+        assertRoundTrip(new Autocomplete(terms, 2));
+    }
+
+    /** Test case for a snapshot of a folded index. */
+    @Test
+    public void testFoldedRoundTrip() throws IOException {
+        assertRoundTrip(new Autocomplete(terms, 3, true));
+    }
+
+    /** Test case for a snapshot of an index without a trie. */
+    @Test
+    public void testRoundTripWithoutTrie() throws IOException {
+        assertRoundTrip(new Autocomplete(terms, 0));
+    }
+
+    /** Test case for a version 1 snapshot, which has no trie section. */
+    @Test
+    public void testReadsVersion1() throws IOException {
+        Autocomplete expected = new Autocomplete(terms, 2);
+        AutocompleteSnapshot.write(expected, file);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        int end = 24;
+        for (int s = 0; s < 3; s++) {
+            long length = bytes.getLong(end);
+            end += 16 + (int) ((length + 7) / 8 * 8);
+        }
+        bytes.putInt(4, 1);
+        bytes.putInt(20, crc(bytes, 20));
+        Files.write(file, Arrays.copyOf(bytes.array(), end));
+        assertAnswersLike(expected, AutocompleteSnapshot.read(file));
+    }
+
+    /** Test case for a single changed byte in each part of the file. */
+    @Test
+    public void testDetectsDamage() throws IOException {
+        AutocompleteSnapshot.write(new Autocomplete(terms, 2, true), file);
+        byte[] good = Files.readAllBytes(file);
+        for (int at = 0; at < good.length; at += 7) {
+            byte[] bad = good.clone();
+            bad[at] ^= 0x10;
+            if (isPadding(good, at)) {
+                continue;
+            }
+            Files.write(file, bad);
+            assertRejected("byte " + at + " of " + good.length + " changed");
+        }
+        Files.write(file, Arrays.copyOf(good, good.length - 8));
+        assertRejected("last 8 bytes cut");
+        Files.write(file, Arrays.copyOf(good, good.length + 8));
+        assertRejected("8 bytes appended");
+    }
+
+    /** Test case for a file that is not a snapshot. */
+    @Test
+    public void testRejectsTermFile() throws IOException {
+        Files.write(file, "2\n 5\tab\n 3\tcd\n 1\tef\n 9\tgh\n".getBytes(StandardCharsets.UTF_8));
+        assertRejected("term file");
+    }
+
+    /**
+     * Writes autocomplete to file, reads it back, and checks that both
+     * answer alike.
+     */
+    private void assertRoundTrip(Autocomplete autocomplete) throws IOException {
+        AutocompleteSnapshot.write(autocomplete, file);
+        assertAnswersLike(autocomplete, AutocompleteSnapshot.read(file));
+    }
+
+    private static void assertAnswersLike(Autocomplete expected, Autocomplete actual) {
+        for (String prefix : PREFIXES) {
+            assertEquals("\nallMatches(" + prefix + ")\n",
+                Arrays.toString(expected.allMatches(prefix)),
+                Arrays.toString(actual.allMatches(prefix)));
+            for (int k = 1; k <= 4; k++) {
+                assertEquals("\ntopMatches(" + prefix + ", " + k + ")\n",
+                    Arrays.toString(expected.topMatches(prefix, k)),
+                    Arrays.toString(actual.topMatches(prefix, k)));
+            }
+        }
+    }
+
+    private void assertRejected(String feedback) {
+        try {
+            AutocompleteSnapshot.read(file);
+            fail("\nsnapshot read despite " + feedback + "\n");
+        }
+        catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Returns true if byte at of the snapshot in bytes is padding after a
+     * section, which is not covered by any checksum.
+     */
+    private static boolean isPadding(byte[] bytes, int at) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int start = 24;
+        while (start < bytes.length) {
+            long length = buffer.getLong(start);
+            int end = start + 16 + (int) length;
+            start = start + 16 + (int) ((length + 7) / 8 * 8);
+            if (at >= end && at < start) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int crc(ByteBuffer bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), 0, length);
+        return (int) crc.getValue();
+    }
+
+}
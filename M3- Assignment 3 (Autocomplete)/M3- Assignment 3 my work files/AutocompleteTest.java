@@ -0,0 +1,197 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * AutocompleteTest.java
+ * JUnit tests for allMatches and topMatches in the Autocomplete class.
+ */
+public class AutocompleteTest {
+
+    private Term[] terms;
+
+    private Autocomplete autocomplete;
+
+    private String feedback;
+
+    @Before
+    public void setup() {
+        terms = new Term[] {
+            new Term("bob", 4),
+            new Term("ab", 5),
+            new Term("abd", 9),
+            new Term("abc", 9),
+            new Term("b", 1),
+            new Term("abcd", 2),
+            new Term("ba", 7),
+            new Term("c", 44),
+            new Term("abe", 3),
+            new Term("bb", 7),
+        };
+        autocomplete = new Autocomplete(terms, 3);
+        feedback = "\nTerms: " + Arrays.toString(terms) + ", cached top 3\n";
+    }
+
+    @Test
+    public void testAllMatches() {
+        feedback += "allMatches(ab)\n";
+        String expected = "[abc\t9, abd\t9, ab\t5, abe\t3, abcd\t2]";
+        String actual = Arrays.toString(autocomplete.allMatches("ab"));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testTopMatchesFromTrie() {
+        feedback += "topMatches(ab, 3)\n";
+        String expected = "[abc\t9, abd\t9, ab\t5]";
+        String actual = Arrays.toString(autocomplete.topMatches("ab", 3));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testTopMatchesTiesInQueryOrder() {
+        feedback += "topMatches(b, 2)\n";
+        String expected = "[ba\t7, bb\t7]";
+        String actual = Arrays.toString(autocomplete.topMatches("b", 2));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testTopMatchesFewerThanK() {
+        feedback += "topMatches(abc, 3)\n";
+        String expected = "[abc\t9, abcd\t2]";
+        String actual = Arrays.toString(autocomplete.topMatches("abc", 3));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testTopMatchesNoMatch() {
+        feedback += "topMatches(abz, 3)\n";
+        String expected = "[]";
+        String actual = Arrays.toString(autocomplete.topMatches("abz", 3));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testTopMatchesBeyondCache() {
+        feedback += "topMatches(ab, 4)\n";
+        String expected = "[abc\t9, abd\t9, ab\t5, abe\t3]";
+        String actual = Arrays.toString(autocomplete.topMatches("ab", 4));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testAllMatchesBatch() {
+        feedback += "allMatchesBatch([b, ab, z, abc, ab], 2)\n";
+        String expected = "[[ba\t7, bb\t7], [abc\t9, abd\t9], [], [abc\t9, abcd\t2],"
+            + " [abc\t9, abd\t9]]";
+        String actual = Arrays.deepToString(
+            autocomplete.allMatchesBatch(new String[] {"b", "ab", "z", "abc", "ab"}, 2));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testFuzzyMatchesExact() {
+        feedback += "fuzzyMatches(bo, 3, 0)\n";
+        String expected = "[bob\t4]";
+        String actual = Arrays.toString(autocomplete.fuzzyMatches("bo", 3, 0));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testFuzzyMatchesOneEdit() {
+        // a substitution (ba, bb, bo) and a deletion (b) are both one edit
+        feedback += "fuzzyMatches(bx, 3, 1)\n";
+        String expected = "[ba\t7, bb\t7, bob\t4]";
+        String actual = Arrays.toString(autocomplete.fuzzyMatches("bx", 3, 1));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testFuzzyMatchesExtraFirstCharacter() {
+        feedback += "fuzzyMatches(xab, 3, 1)\n";
+        String expected = "[abc\t9, abd\t9, ab\t5]";
+        String actual = Arrays.toString(autocomplete.fuzzyMatches("xab", 3, 1));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testFuzzyMatchesTwoEdits() {
+        feedback += "fuzzyMatches(bx, 3, 2)\n";
+        String expected = "[c\t44, abc\t9, abd\t9]";
+        String actual = Arrays.toString(autocomplete.fuzzyMatches("bx", 3, 2));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFuzzyMatchesTooManyEdits() {
+        autocomplete.fuzzyMatches("ab", 3, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFuzzyMatchesBeyondCache() {
+        autocomplete.fuzzyMatches("ab", 4, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFuzzyMatchesWithoutTrie() {
+        new Autocomplete(terms).fuzzyMatches("ab", 1, 1);
+    }
+
+    @Test
+    public void testFoldedMatchingIgnoresCaseAndAccents() {
+        Term[] cafes = {
+            new Term("Caf\u00e9 Latte", 5),
+            new Term("CAFE", 9),
+            new Term("cafeteria", 3),
+            new Term("cafe\u0301 noir", 4),
+            new Term("cab", 1),
+        };
+        Autocomplete folded = new Autocomplete(cafes, 2, true);
+        feedback = "\nFolded terms: " + Arrays.toString(cafes) + "\n";
+        String expected = "[CAFE\t9, Caf\u00e9 Latte\t5, cafe\u0301 noir\t4, cafeteria\t3]";
+        assertEquals(feedback + "allMatches(cafe)\n", expected,
+            Arrays.toString(folded.allMatches("cafe")));
+        assertEquals(feedback + "allMatches(CAF\u00c9)\n", expected,
+            Arrays.toString(folded.allMatches("CAF\u00c9")));
+        assertEquals(feedback + "topMatches(Cafe\u0301, 2)\n", "[CAFE\t9, Caf\u00e9 Latte\t5]",
+            Arrays.toString(folded.topMatches("Cafe\u0301", 2)));
+        assertEquals(feedback + "allMatches(caf\u00e9 N)\n", "[cafe\u0301 noir\t4]",
+            Arrays.toString(folded.allMatches("caf\u00e9 N")));
+    }
+
+    @Test
+    public void testUnfoldedMatchingIsExact() {
+        Term[] cafes = {
+            new Term("Caf\u00e9 Latte", 5),
+            new Term("CAFE", 9),
+            new Term("cafeteria", 3),
+        };
+        Autocomplete exact = new Autocomplete(cafes, 2, false);
+        feedback = "\nTerms: " + Arrays.toString(cafes) + "\nallMatches(cafe)\n";
+        String expected = "[cafeteria\t3]";
+        String actual = Arrays.toString(exact.allMatches("cafe"));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testTopMatchesIsHeadOfAllMatches() {
+        for (Term term : terms) {
+            String query = term.query();
+            for (int length = 0; length <= query.length(); length++) {
+                String prefix = query.substring(0, length);
+                Term[] all = autocomplete.allMatches(prefix);
+                for (int k = 0; k <= 4; k++) {
+                    String expected = Arrays.toString(Arrays.copyOf(all, Math.min(k, all.length)));
+                    String actual = Arrays.toString(autocomplete.topMatches(prefix, k));
+                    assertEquals(feedback + "topMatches(" + prefix + ", " + k + ")\n",
+                        expected, actual);
+                }
+            }
+        }
+    }
+
+}
@@ -15,24 +15,10 @@ public class BinarySearch {
  if (a == null || key == null || comparator == null) {
      throw new NullPointerException();
  }
-    	int first = 0;
-    	int last = a.length - 1;
-    	if (comparator.compare(a[0], key) == 0) {
-            return 0;
+    	int first = lowerBound(a, key, comparator, 0, a.length);
+    	if (first < a.length && comparator.compare(a[first], key) == 0) {
+            return first;
         }
-    	while (first <= last) {
-    		int middle = first + (last - first) / 2;
-    		if (comparator.compare(key, a[middle]) < 0) {
-                last = middle - 1;
-            }
-    		else if (comparator.compare(key, a[middle]) > 0) {
-                first = middle + 1;
-            }
-    		else if (comparator.compare(a[middle - 1], a[middle]) == 0) {
-                last = middle - 1;
-            }
-    		else return middle;
-    	}
 		return -1;
     }
 
@@ -45,26 +31,92 @@ public class BinarySearch {
 if (a == null || key == null || comparator == null) {
     throw new NullPointerException();
 }
-    	int first = 0;
-    	int last = a.length - 1;
-    	if (comparator.compare(a[last], key) == 0) {
+    	int last = upperBound(a, key, comparator, 0, a.length) - 1;
+    	if (last >= 0 && comparator.compare(a[last], key) == 0) {
             return last;
         }
-    	while (first <= last) {
+		return -1;
+    }
+
+    /**
+     * Returns {first, last}, the indices of the first and last keys in a[]
+     * that equal the search key, or {-1, -1} if no such key exists. Both
+     * bounds come from a single descent: it narrows the range until it
+     * first meets an equal key, then finishes the lower bound to the left of
+     * it and the upper bound to the right. Every level makes exactly one
+     * comparison. This method throws a NullPointerException if any parameter
+     * is null.
+     */
+    public static <Key> int[] equalRange(Key[] a, Key key, Comparator<Key> comparator) {
+    	if (a == null || key == null || comparator == null) {
+    		throw new NullPointerException();
+    	}
+    	long range = equalRange(a, key, comparator, 0, a.length);
+    	int first = (int) (range >>> 32);
+    	int end = (int) range;
+    	if (first == end) {
+            return new int[] {-1, -1};
+        }
+    	return new int[] {first, end - 1};
+    }
+
+    /**
+     * Returns the keys in [first, last) that equal the search key, found as
+     * in equalRange and packed as the first index in the high 32 bits and
+     * one past the last index in the low 32 bits. The range is empty, at
+     * the insertion point, when the two are equal.
+     */
+    static <Key> long equalRange(Key[] a, Key key, Comparator<Key> comparator, int first, int last) {
+    	while (first < last) {
     		int middle = first + (last - first) / 2;
-    		if (comparator.compare(key, a[middle]) < 0) {
-                last = middle - 1;
+    		int c = comparator.compare(a[middle], key);
+    		if (c < 0) {
+                first = middle + 1;
             }
-    		else if (comparator.compare(key, a[middle]) > 0) {
+    		else if (c > 0) {
+                last = middle;
+            }
+    		else {
+    			int lower = lowerBound(a, key, comparator, first, middle);
+    			int upper = upperBound(a, key, comparator, middle + 1, last);
+    			return ((long) lower << 32) | upper;
+    		}
+    	}
+    	return ((long) first << 32) | first;
+    }
+
+    /**
+     * Returns the first index in [first, last) whose key is not less than
+     * the search key, or last if there is none.
+     */
+    static <Key> int lowerBound(Key[] a, Key key, Comparator<Key> comparator, int first, int last) {
+    	while (first < last) {
+    		int middle = first + (last - first) / 2;
+    		if (comparator.compare(a[middle], key) < 0) {
                 first = middle + 1;
             }
-    		else if (comparator.compare(a[middle + 1], a[middle]) == 0) {
+    		else {
+                last = middle;
+            }
+    	}
+    	return first;
+    }
+
+    /**
+     * Returns the first index in [first, last) whose key is greater than
+     * the search key, or last if there is none.
+     */
+    static <Key> int upperBound(Key[] a, Key key, Comparator<Key> comparator, int first, int last) {
+    	while (first < last) {
+    		int middle = first + (last - first) / 2;
+    		if (comparator.compare(a[middle], key) <= 0) {
                 first = middle + 1;
             }
-    		else return middle;
+    		else {
+                last = middle;
+            }
     	}
-		return -1;
+    	return first;
     }
 
 }
-
@@ -0,0 +1,243 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, least-recently-used result cache in front of an Autocomplete or
+ * UpdatableAutocomplete. Results are keyed by prefix and result size. The
+ * cache clears itself the first time it sees that the underlying terms have
+ * changed, so it never serves a result computed from older terms.
+ *
+ * The cache is split into stripes by key hash, each an LRU map with its own
+ * lock and an equal share of the capacity, so lookups of different prefixes
+ * rarely contend. Both topMatches and allMatches results are cached; the
+ * latter matter most for the short prefixes typed first, which match the
+ * most terms. Besides the number of results, the cache bounds the number
+ * of terms the results hold in all to MAX_CACHED_TERMS, evicting least
+ * recently used results to stay under it, and a result larger than a
+ * stripe's share of that is passed through uncached.
+ */
+public class CachedAutocomplete {
+
+    // most terms held by all cached results together
+    static final int MAX_CACHED_TERMS = 1 << 20;
+
+    // result size under which allMatches results are keyed
+    private static final int ALL = -1;
+
+    // most stripes, each guarded by its own lock
+    private static final int MAX_STRIPES = 16;
+
+    private final BiFunction<String, Integer, Term[]> top;
+    private final Function<String, Term[]> all;
+    private final LongSupplier version;
+    private final Stripe[] stripes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Caches up to capacity results of the given autocomplete. This method
+     * throws a NullPointerException if autocomplete is null, and an
+     * IllegalArgumentException if capacity is not positive.
+     */
+    public CachedAutocomplete(Autocomplete autocomplete, int capacity) {
+        this(autocomplete::topMatches, autocomplete::allMatches, () -> 0L, capacity);
+    }
+
+    /**
+     * Caches up to capacity results of the given updatable autocomplete,
+     * dropping them whenever its terms change. This method throws a
+     * NullPointerException if autocomplete is null, and an
+     * IllegalArgumentException if capacity is not positive.
+     */
+    public CachedAutocomplete(UpdatableAutocomplete autocomplete, int capacity) {
+        this(autocomplete::topMatches, autocomplete::allMatches, autocomplete::version,
+            capacity);
+    }
+
+    private CachedAutocomplete(BiFunction<String, Integer, Term[]> top,
+        Function<String, Term[]> all, LongSupplier version, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.top = top;
+        this.all = all;
+        this.version = version;
+        long current = version.getAsLong();
+        this.stripes = new Stripe[Math.min(MAX_STRIPES, capacity)];
+        for (int i = 0; i < stripes.length; i++) {
+            int share = capacity / stripes.length + (i < capacity % stripes.length ? 1 : 0);
+            stripes[i] = new Stripe(share, MAX_CACHED_TERMS / stripes.length, current);
+        }
+    }
+
+    /**
+     * Returns all terms that start with the given prefix, in descending
+     * order of weight. This method throws a NullPointerException if prefix
+     * is null.
+     */
+    public Term[] allMatches(String prefix) {
+        if (prefix == null) {
+            throw new NullPointerException();
+        }
+        return lookup(new Key(prefix, ALL));
+    }
+
+    /**
+     * Returns the (at most) k heaviest terms that start with the given
+     * prefix, in descending order of weight. This method throws a
+     * NullPointerException if prefix is null, and an
+     * IllegalArgumentException if k is negative.
+     */
+    public Term[] topMatches(String prefix, int k) {
+        if (prefix == null) {
+            throw new NullPointerException();
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        return lookup(new Key(prefix, k));
+    }
+
+    /**
+     * Returns the cached result for key, or computes, caches, and returns
+     * it.
+     */
+    private Term[] lookup(Key key) {
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        long current = version.getAsLong();
+        synchronized (stripe) {
+            if (current != stripe.version) {
+                stripe.clear();
+                stripe.version = current;
+            }
+            Term[] cached = stripe.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.clone();
+            }
+        }
+        misses.incrementAndGet();
+        Term[] result = key.k == ALL ? all.apply(key.prefix) : top.apply(key.prefix, key.k);
+        if (result.length > stripe.termCapacity) {
+            return result;
+        }
+        synchronized (stripe) {
+            // Only keep the result if no update landed while computing it.
+            if (current == stripe.version && current == version.getAsLong()) {
+                stripe.add(key, result.clone());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that had to be computed.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of results currently cached.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public void invalidate() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * One stripe of the cache: an access-ordered map holding at most
+     * capacity results and termCapacity terms in all, all computed from the
+     * terms at version. Guarded by its own monitor.
+     */
+    private static class Stripe extends LinkedHashMap<Key, Term[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private final int termCapacity;
+        private long terms;
+        private long version;
+
+        private Stripe(int capacity, int termCapacity, long version) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.termCapacity = termCapacity;
+            this.version = version;
+        }
+
+        /**
+         * Caches result under key, then evicts the least recently used
+         * results until both bounds hold again.
+         */
+        private void add(Key key, Term[] result) {
+            Term[] old = put(key, result);
+            terms += result.length - (old == null ? 0 : old.length);
+            Iterator<Term[]> eldest = values().iterator();
+            while (size() > capacity || terms > termCapacity) {
+                terms -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            terms = 0;
+        }
+    }
+
+    /**
+     * Cache key made of a prefix and a result size.
+     */
+    private static class Key {
+        private final String prefix;
+        private final int k;
+
+        private Key(String prefix, int k) {
+            this.prefix = prefix;
+            this.k = k;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return k == other.k && prefix.equals(other.prefix);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * prefix.hashCode() + k;
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * CachedAutocompleteTest.java
+ * JUnit tests for hits, eviction, and invalidation in the
+ * CachedAutocomplete class.
+ */
+public class CachedAutocompleteTest {
+
+    private Term[] terms;
+
+    private String feedback;
+
+    @Before
+    public void setup() {
+        terms = new Term[] {
+            new Term("car", 30),
+            new Term("cat", 20),
+            new Term("cab", 10),
+            new Term("dog", 5),
+        };
+        feedback = "\nTerms: [car 30, cat 20, cab 10, dog 5]\n";
+    }
+
+    @Test
+    public void testRepeatedTopMatchesHits() {
+        CachedAutocomplete cache = new CachedAutocomplete(new Autocomplete(terms), 8);
+        feedback += "topMatches(ca, 2) three times\n";
+        for (int i = 0; i < 3; i++) {
+            assertEquals(feedback, "[car\t30, cat\t20]", Arrays.toString(cache.topMatches("ca", 2)));
+        }
+        assertEquals(feedback + "misses()\n", 1, cache.misses());
+        assertEquals(feedback + "hits()\n", 2, cache.hits());
+    }
+
+    @Test
+    public void testAllMatchesIsCached() {
+        CachedAutocomplete cache = new CachedAutocomplete(new Autocomplete(terms), 8);
+        feedback += "allMatches(c) twice, then topMatches(c, 3)\n";
+        String expected = "[car\t30, cat\t20, cab\t10]";
+        assertEquals(feedback, expected, Arrays.toString(cache.allMatches("c")));
+        assertEquals(feedback, expected, Arrays.toString(cache.allMatches("c")));
+        assertEquals(feedback, expected, Arrays.toString(cache.topMatches("c", 3)));
+        assertEquals(feedback + "misses()\n", 2, cache.misses());
+        assertEquals(feedback + "hits()\n", 1, cache.hits());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        CachedAutocomplete cache = new CachedAutocomplete(new Autocomplete(terms), 1);
+        feedback += "capacity 1: allMatches of c, c, d, c\n";
+        for (String prefix : new String[] {"c", "c", "d", "c"}) {
+            cache.allMatches(prefix);
+        }
+        assertEquals(feedback + "size()\n", 1, cache.size());
+        assertEquals(feedback + "hits()\n", 1, cache.hits());
+        assertEquals(feedback + "misses()\n", 3, cache.misses());
+    }
+
+    @Test
+    public void testResultsAreCopies() {
+        CachedAutocomplete cache = new CachedAutocomplete(new Autocomplete(terms), 8);
+        feedback += "allMatches(c), overwrite the result, allMatches(c)\n";
+        Term[] first = cache.allMatches("c");
+        first[0] = new Term("zzz", 99);
+        String expected = "[car\t30, cat\t20, cab\t10]";
+        assertEquals(feedback, expected, Arrays.toString(cache.allMatches("c")));
+    }
+
+    @Test
+    public void testUpdateInvalidates() {
+        UpdatableAutocomplete updatable = new UpdatableAutocomplete(terms, 2, 1_000);
+        try {
+            CachedAutocomplete cache = new CachedAutocomplete(updatable, 8);
+            feedback += "allMatches(ca), put(cab, 40), allMatches(ca)\n";
+            assertEquals(feedback, "[car\t30, cat\t20, cab\t10]",
+                Arrays.toString(cache.allMatches("ca")));
+            updatable.put("cab", 40);
+            assertEquals(feedback, "[cab\t40, car\t30, cat\t20]",
+                Arrays.toString(cache.allMatches("ca")));
+            assertEquals(feedback + "misses()\n", 2, cache.misses());
+        }
+        finally {
+            updatable.close();
+        }
+    }
+
+    @Test
+    public void testInvalidateEmpties() {
+        CachedAutocomplete cache = new CachedAutocomplete(new Autocomplete(terms), 8);
+        feedback += "topMatches(c, 1), allMatches(d), invalidate()\n";
+        cache.topMatches("c", 1);
+        cache.allMatches("d");
+        assertEquals(feedback + "size() before\n", 2, cache.size());
+        cache.invalidate();
+        assertEquals(feedback + "size() after\n", 0, cache.size());
+    }
+
+}
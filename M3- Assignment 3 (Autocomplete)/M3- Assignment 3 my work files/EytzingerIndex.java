@@ -0,0 +1,141 @@
+import java.util.Comparator;
+
+/**
+ * Sorted keys stored in Eytzinger (breadth-first) order: the root of the
+ * implicit search tree is at slot 1 and the children of slot k are at 2k
+ * and 2k + 1. A search walks down this array instead of jumping around the
+ * sorted one, so the first several probes of every search share a few
+ * cache lines, and the next probe is always one of two adjacent slots,
+ * which hardware prefetchers pick up. Results are reported as indices into
+ * the original sorted array.
+ */
+public class EytzingerIndex<Key> {
+
+    private final Object[] tree;
+    private final int[] rank;
+    private final Comparator<Key> comparator;
+    private final int n;
+
+    /**
+     * Builds the layout from keys, which must be sorted by comparator. This
+     * method throws a NullPointerException if any parameter is null.
+     */
+    public EytzingerIndex(Key[] sorted, Comparator<Key> comparator) {
+        if (sorted == null || comparator == null) {
+            throw new NullPointerException();
+        }
+        this.n = sorted.length;
+        this.tree = new Object[n + 1];
+        this.rank = new int[n + 1];
+        this.comparator = comparator;
+        fill(sorted, 0, 1);
+    }
+
+    /**
+     * Returns the number of keys.
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns the index (in sorted order) of the first key not less than
+     * key, or size() if there is none.
+     */
+    public int lowerBound(Key key) {
+        return finish(descend(1, key, comparator, false));
+    }
+
+    /**
+     * Returns the index (in sorted order) of the first key greater than
+     * key, or size() if there is none.
+     */
+    public int upperBound(Key key) {
+        return finish(descend(1, key, comparator, true));
+    }
+
+    /**
+     * Returns {first, last}, the sorted-order indices of the first and last
+     * keys equal to key, or {-1, -1} if there are none. Both bounds come
+     * from a single descent, as in BinarySearch.equalRange. This method
+     * throws a NullPointerException if key is null.
+     */
+    public int[] equalRange(Key key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        long range = range(key, comparator);
+        int first = (int) (range >>> 32);
+        int end = (int) range;
+        if (first == end) {
+            return new int[] {-1, -1};
+        }
+        return new int[] {first, end - 1};
+    }
+
+    /**
+     * Returns the keys equal to key under comparator, which must order the
+     * keys as the layout's own comparator does, packed as the sorted-order
+     * index of the first in the high 32 bits and one past the last in the
+     * low 32 bits. The range is empty, at the insertion point, when the two
+     * are equal. The walk goes down from the root until it first meets an
+     * equal key, then finishes the lower bound in that slot's left subtree
+     * and the upper bound in its right subtree, so every level makes one
+     * comparison.
+     */
+    @SuppressWarnings("unchecked")
+    long range(Key key, Comparator<Key> comparator) {
+        int k = 1;
+        while (k <= n) {
+            int c = comparator.compare((Key) tree[k], key);
+            if (c == 0) {
+                int lower = finish(descend(2 * k, key, comparator, false));
+                int upper = finish(descend(2 * k + 1, key, comparator, true));
+                return ((long) lower << 32) | upper;
+            }
+            k = 2 * k + (c < 0 ? 1 : 0);
+        }
+        int insertion = finish(k);
+        return ((long) insertion << 32) | insertion;
+    }
+
+    /**
+     * Walks from slot k down to a leaf with one comparison per level,
+     * turning right past keys less than key (or, for an upper bound, not
+     * greater than key), and returns the slot one past the leaf.
+     */
+    @SuppressWarnings("unchecked")
+    private int descend(int k, Key key, Comparator<Key> comparator, boolean upper) {
+        while (k <= n) {
+            int c = comparator.compare((Key) tree[k], key);
+            k = 2 * k + ((c < 0 || (upper && c == 0)) ? 1 : 0);
+        }
+        return k;
+    }
+
+    /**
+     * Returns the sorted-order index of the bound reached by a walk that
+     * ended at slot k: the bits of k spell the turns taken from the root,
+     * so backing up to the last slot where the walk turned left finds the
+     * answer, or no such slot means every key was passed.
+     */
+    private int finish(int k) {
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k == 0 ? n : rank[k];
+    }
+
+    /**
+     * Fills the subtree rooted at slot k by an in-order walk, starting
+     * with sorted[i]. Returns the index of the next key to place.
+     */
+    private int fill(Key[] sorted, int i, int k) {
+        if (k <= n) {
+            i = fill(sorted, i, 2 * k);
+            tree[k] = sorted[i];
+            rank[k] = i;
+            i = fill(sorted, i + 1, 2 * k + 1);
+        }
+        return i;
+    }
+
+}
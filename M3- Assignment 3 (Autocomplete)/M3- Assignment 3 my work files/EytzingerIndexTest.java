@@ -0,0 +1,68 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.junit.Test;
+
+/**
+ * EytzingerIndexTest.java
+ * JUnit tests for the EytzingerIndex class, checked against BinarySearch.
+ */
+public class EytzingerIndexTest {
+
+    private static final Comparator<Integer> NATURAL = Comparator.naturalOrder();
+
+    /** Test case for every key of small arrays with repeated keys. */
+    @Test
+    public void testAgreesWithBinarySearch() {
+        for (int n = 0; n <= 40; n++) {
+            Integer[] a = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                // even keys, in runs that shrink from many equal keys to one
+                a[i] = 2 * (i * i / 50);
+            }
+            EytzingerIndex<Integer> layout = new EytzingerIndex<Integer>(a, NATURAL);
+            for (int key = -1; key <= a.length * a.length / 25 + 1; key++) {
+                String feedback = "\n" + Arrays.toString(a) + ", key " + key + "\n";
+                assertEquals(feedback + "equalRange\n",
+                    Arrays.toString(BinarySearch.equalRange(a, key, NATURAL)),
+                    Arrays.toString(layout.equalRange(key)));
+                assertEquals(feedback + "lowerBound\n",
+                    BinarySearch.lowerBound(a, key, NATURAL, 0, n), layout.lowerBound(key));
+                assertEquals(feedback + "upperBound\n",
+                    BinarySearch.upperBound(a, key, NATURAL, 0, n), layout.upperBound(key));
+            }
+        }
+    }
+
+    /** Test case for an equal range spanning the whole array. */
+    @Test
+    public void testAllEqual() {
+        Integer[] a = {7, 7, 7, 7, 7, 7, 7};
+        EytzingerIndex<Integer> layout = new EytzingerIndex<Integer>(a, NATURAL);
+        String expected = "[0, 6]";
+        String actual = Arrays.toString(layout.equalRange(7));
+        assertEquals(expected, actual);
+    }
+
+    /** Test case for prefix searches through Autocomplete. */
+    @Test
+    public void testAutocompleteLayoutAgrees() {
+        Term[] terms = {
+            new Term("ab", 5), new Term("abc", 9), new Term("abd", 9), new Term("b", 1),
+            new Term("ba", 7), new Term("bb", 7), new Term("bob", 4), new Term("c", 44),
+        };
+        Autocomplete sorted = new Autocomplete(terms, 2);
+        Autocomplete layout = sorted.withEytzingerLayout();
+        for (String prefix : new String[] {"", "a", "ab", "abc", "abz", "b", "bo", "c", "d"}) {
+            assertEquals("\nallMatches(" + prefix + ")\n",
+                Arrays.toString(sorted.allMatches(prefix)),
+                Arrays.toString(layout.allMatches(prefix)));
+            assertEquals("\ntopMatches(" + prefix + ", 3)\n",
+                Arrays.toString(sorted.topMatches(prefix, 3)),
+                Arrays.toString(layout.topMatches(prefix, 3)));
+        }
+    }
+
+}
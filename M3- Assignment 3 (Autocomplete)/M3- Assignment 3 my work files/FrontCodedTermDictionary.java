@@ -0,0 +1,208 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Sorted term dictionary with front-coded queries. The terms are split into
+ * blocks of BLOCK_SIZE; the first query of each block (its head) is kept as
+ * a String, and every other query is stored as the number of characters it
+ * shares with the query before it and the UTF-8 bytes of the rest, with
+ * both numbers as varints. Sorted queries share long prefixes, so this
+ * takes a fraction of the memory of one String per term. A lookup binary
+ * searches the heads and decodes only the blocks its range touches.
+ */
+public class FrontCodedTermDictionary {
+
+    // queries per block; each block holds one full head
+    static final int BLOCK_SIZE = 16;
+
+    private final int size;
+    private final String[] heads;
+    private final int[] blockOffsets;
+    private final byte[] data;
+    private final long[] weights;
+
+    /**
+     * Builds the dictionary from the given terms, which need not be sorted.
+     * This method throws a NullPointerException if terms is null.
+     */
+    public FrontCodedTermDictionary(Term[] terms) {
+        if (terms == null) {
+            throw new NullPointerException();
+        }
+        Term[] sorted = terms.clone();
+        Arrays.parallelSort(sorted);
+        size = sorted.length;
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        heads = new String[blocks];
+        blockOffsets = new int[blocks + 1];
+        weights = new long[size];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < size; i++) {
+            String query = sorted[i].query();
+            weights[i] = sorted[i].weight();
+            if (i % BLOCK_SIZE == 0) {
+                heads[i / BLOCK_SIZE] = query;
+                blockOffsets[i / BLOCK_SIZE] = out.size();
+                continue;
+            }
+            String previous = sorted[i - 1].query();
+            int shared = 0;
+            int limit = Math.min(previous.length(), query.length());
+            while (shared < limit && previous.charAt(shared) == query.charAt(shared)) {
+                shared++;
+            }
+            // never split a surrogate pair between shared part and suffix
+            if (shared > 0 && shared < query.length()
+                && Character.isHighSurrogate(query.charAt(shared - 1))) {
+                shared--;
+            }
+            byte[] suffix = query.substring(shared).getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, shared);
+            writeVarint(out, suffix.length);
+            out.write(suffix, 0, suffix.length);
+        }
+        blockOffsets[blocks] = out.size();
+        data = out.toByteArray();
+    }
+
+    /**
+     * Returns the number of terms.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the query of the i-th term in lexicographic order. This
+     * method throws an IndexOutOfBoundsException if i is out of range.
+     */
+    public String query(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("index " + i);
+        }
+        String[] block = new String[BLOCK_SIZE];
+        decode(i / BLOCK_SIZE, block);
+        return block[i % BLOCK_SIZE];
+    }
+
+    /**
+     * Returns the weight of the i-th term in lexicographic order.
+     */
+    public long weight(int i) {
+        return weights[i];
+    }
+
+    /**
+     * Returns the number of bytes used by the encoded queries: the heads,
+     * the block data, and the block offsets. Weights are not included.
+     */
+    public long encodedBytes() {
+        long bytes = data.length + 4L * blockOffsets.length;
+        for (String head : heads) {
+            bytes += 2L * head.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns all terms that start with the given prefix, in descending
+     * order of weight, exactly as Autocomplete.allMatches does. This method
+     * throws a NullPointerException if prefix is null.
+     */
+    public Term[] allMatches(String prefix) {
+        if (prefix == null) {
+            throw new NullPointerException();
+        }
+        String[] block = new String[BLOCK_SIZE];
+        int first = bound(prefix, false, block);
+        int last = bound(prefix, true, block);
+        Term[] matched = new Term[last - first];
+        int decoded = -1;
+        for (int i = first; i < last; i++) {
+            if (i / BLOCK_SIZE != decoded) {
+                decoded = i / BLOCK_SIZE;
+                decode(decoded, block);
+            }
+            matched[i - first] = new Term(block[i % BLOCK_SIZE], weights[i]);
+        }
+        return WeightSort.descending(matched, Arrays.copyOfRange(weights, first, last),
+            0, matched.length);
+    }
+
+    /**
+     * Returns the first index whose query, cut to the length of prefix, is
+     * not less than prefix (lower) or greater than prefix (upper), or size()
+     * if there is none. The heads are searched first, then the one block
+     * that can hold the bound is decoded into block and scanned.
+     */
+    private int bound(String prefix, boolean upper, String[] block) {
+        int first = 0;
+        int last = heads.length;
+        while (first < last) {
+            int middle = first + (last - first) / 2;
+            int c = Term.compareFirst(heads[middle], prefix, prefix.length());
+            if (c < 0 || (upper && c == 0)) {
+                first = middle + 1;
+            }
+            else {
+                last = middle;
+            }
+        }
+        // every head before block first is below the bound, so the bound is
+        // inside block first - 1 or is the head of block first
+        if (first == 0) {
+            return 0;
+        }
+        int b = first - 1;
+        int count = decode(b, block);
+        for (int j = 1; j < count; j++) {
+            int c = Term.compareFirst(block[j], prefix, prefix.length());
+            if (c > 0 || (!upper && c == 0)) {
+                return b * BLOCK_SIZE + j;
+            }
+        }
+        return Math.min(size, first * BLOCK_SIZE);
+    }
+
+    /**
+     * Decodes the queries of block b into out and returns how many there
+     * are.
+     */
+    private int decode(int b, String[] out) {
+        int count = Math.min(BLOCK_SIZE, size - b * BLOCK_SIZE);
+        out[0] = heads[b];
+        int p = blockOffsets[b];
+        for (int j = 1; j < count; j++) {
+            int shared = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte x = data[p++];
+                shared |= (x & 0x7F) << shift;
+                if (x >= 0) {
+                    break;
+                }
+            }
+            int length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte x = data[p++];
+                length |= (x & 0x7F) << shift;
+                if (x >= 0) {
+                    break;
+                }
+            }
+            out[j] = out[j - 1].substring(0, shared)
+                + new String(data, p, length, StandardCharsets.UTF_8);
+            p += length;
+        }
+        return count;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+}
@@ -0,0 +1,102 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * FrontCodedTermDictionaryTest.java
+ * JUnit tests for the FrontCodedTermDictionary class, checked against
+ * Autocomplete.
+ */
+public class FrontCodedTermDictionaryTest {
+
+    /** Test case for queries decoded in sorted order. */
+    @Test
+    public void testQueriesInSortedOrder() {
+        Term[] terms = {
+            new Term("tea", 3), new Term("ten", 8), new Term("te", 1), new Term("A", 2),
+            new Term("inn", 9), new Term("to", 7), new Term("i", 4), new Term("in", 5),
+        };
+        FrontCodedTermDictionary dictionary = new FrontCodedTermDictionary(terms);
+        Term[] sorted = terms.clone();
+        Arrays.sort(sorted);
+        assertEquals("\nsize\n", 8, dictionary.size());
+        for (int i = 0; i < sorted.length; i++) {
+            assertEquals("\nquery(" + i + ")\n", sorted[i].query(), dictionary.query(i));
+            assertEquals("\nweight(" + i + ")\n", sorted[i].weight(), dictionary.weight(i));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testQueryOutOfRange() {
+        new FrontCodedTermDictionary(new Term[] {new Term("a", 1)}).query(1);
+    }
+
+    /** Test case for prefix ranges across several blocks. */
+    @Test
+    public void testAgreesWithAutocomplete() {
+        Term[] terms = blockSpanningTerms();
+        FrontCodedTermDictionary dictionary = new FrontCodedTermDictionary(terms);
+        Autocomplete autocomplete = new Autocomplete(terms);
+        String[] prefixes = {
+            "", "b", "ba", "bab", "bac", "babc", "bcab", "bcc", "c", "a", "\uD83D",
+            "\uD83D\uDE00", "\uD83D\uDE01b",
+        };
+        for (String prefix : prefixes) {
+            assertEquals("\nallMatches(" + prefix + ")\n",
+                Arrays.toString(autocomplete.allMatches(prefix)),
+                Arrays.toString(dictionary.allMatches(prefix)));
+        }
+        for (int i = 0; i < dictionary.size(); i++) {
+            String query = dictionary.query(i);
+            assertEquals("\nallMatches(" + query + ")\n",
+                Arrays.toString(autocomplete.allMatches(query)),
+                Arrays.toString(dictionary.allMatches(query)));
+        }
+    }
+
+    /** Test case for queries that differ in the low half of a surrogate pair. */
+    @Test
+    public void testSurrogatePairsDecodeWhole() {
+        Term[] terms = {
+            new Term("\uD83D\uDE00", 1), new Term("\uD83D\uDE01", 2),
+            new Term("\uD83D\uDE01x", 3),
+        };
+        FrontCodedTermDictionary dictionary = new FrontCodedTermDictionary(terms);
+        for (int i = 0; i < terms.length; i++) {
+            assertEquals("\nquery(" + i + ")\n", terms[i].query(), dictionary.query(i));
+        }
+    }
+
+    /** Test case for the space taken by queries with long shared prefixes. */
+    @Test
+    public void testEncodedSmallerThanStrings() {
+        Term[] terms = blockSpanningTerms();
+        long chars = 0;
+        for (Term term : terms) {
+            chars += 2L * term.query().length();
+        }
+        long bytes = new FrontCodedTermDictionary(terms).encodedBytes();
+        assertTrue("\nencodedBytes " + bytes + " not below " + chars + "\n", bytes < chars);
+    }
+
+    /**
+     * Returns 81 terms over the letters a, b, c, with four-letter queries
+     * starting with b and some emoji queries, enough to fill several blocks.
+     */
+    private static Term[] blockSpanningTerms() {
+        Term[] terms = new Term[81];
+        for (int i = 0; i < 78; i++) {
+            String query = "b" + (char) ('a' + i / 9 % 3) + (char) ('a' + i / 3 % 3)
+                + (char) ('a' + i % 3) + (i < 27 ? "" : i < 54 ? " long suffix" : " longer suffix");
+            terms[i] = new Term(query, i * 29 % 17);
+        }
+        terms[78] = new Term("\uD83D\uDE00", 5);
+        terms[79] = new Term("\uD83D\uDE01", 5);
+        terms[80] = new Term("\uD83D\uDE01b", 2);
+        return terms;
+    }
+
+}
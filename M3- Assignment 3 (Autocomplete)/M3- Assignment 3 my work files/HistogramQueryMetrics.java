@@ -0,0 +1,191 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * QueryMetrics that keeps power-of-two histograms of latency, range size,
+ * comparisons, and sort time. A value v is counted in bucket
+ * 64 - numberOfLeadingZeros(v), so bucket b holds [2^(b-1), 2^b) and a
+ * percentile is reported as the upper end of its bucket, which is within a
+ * factor of two. Recording is a few atomic adds and never allocates.
+ */
+public class HistogramQueryMetrics implements QueryMetrics, HistogramQueryMetricsMBean {
+
+    private static final int BUCKETS = 65;
+
+    private final Histogram latency = new Histogram();
+    private final Histogram rangeSize = new Histogram();
+    private final Histogram comparisons = new Histogram();
+    private final Histogram sort = new Histogram();
+
+    @Override
+    public void record(long latencyNanos, int rangeSize, int comparisons, long sortNanos) {
+        latency.add(latencyNanos);
+        this.rangeSize.add(rangeSize);
+        this.comparisons.add(comparisons);
+        sort.add(sortNanos);
+    }
+
+    /**
+     * Registers this object on the platform MBean server under the given
+     * object name, for example "Autocomplete:type=QueryMetrics". This method
+     * throws an IllegalArgumentException if the name is malformed or already
+     * registered.
+     */
+    public void register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+        }
+        catch (JMException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return latency.count();
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return latency.percentile(0.50) / 1000;
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return latency.percentile(0.99) / 1000;
+    }
+
+    @Override
+    public long getLatencyMaxMicros() {
+        return latency.max() / 1000;
+    }
+
+    @Override
+    public double getLatencyMeanMicros() {
+        return latency.mean() / 1000;
+    }
+
+    @Override
+    public long getRangeSizeP50() {
+        return rangeSize.percentile(0.50);
+    }
+
+    @Override
+    public long getRangeSizeP99() {
+        return rangeSize.percentile(0.99);
+    }
+
+    @Override
+    public long getRangeSizeMax() {
+        return rangeSize.max();
+    }
+
+    @Override
+    public double getRangeSizeMean() {
+        return rangeSize.mean();
+    }
+
+    @Override
+    public double getComparisonsMean() {
+        return comparisons.mean();
+    }
+
+    @Override
+    public long getComparisonsMax() {
+        return comparisons.max();
+    }
+
+    @Override
+    public long getSortP99Micros() {
+        return sort.percentile(0.99) / 1000;
+    }
+
+    @Override
+    public double getSortMeanMicros() {
+        return sort.mean() / 1000;
+    }
+
+    /**
+     * Clears every histogram. Queries recorded during a reset may be
+     * partly kept.
+     */
+    @Override
+    public void reset() {
+        latency.reset();
+        rangeSize.reset();
+        comparisons.reset();
+        sort.reset();
+    }
+
+    /**
+     * Counts, sum, and maximum of a stream of non-negative values.
+     */
+    private static class Histogram {
+
+        // slots [0, BUCKETS) are counts; then sum, max
+        private static final int SUM = BUCKETS;
+        private static final int MAX = BUCKETS + 1;
+
+        private final AtomicLongArray cells = new AtomicLongArray(BUCKETS + 2);
+
+        void add(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            cells.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            cells.addAndGet(SUM, value);
+            long max = cells.get(MAX);
+            while (value > max && !cells.compareAndSet(MAX, max, value)) {
+                max = cells.get(MAX);
+            }
+        }
+
+        long count() {
+            long count = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                count += cells.get(b);
+            }
+            return count;
+        }
+
+        long max() {
+            return cells.get(MAX);
+        }
+
+        double mean() {
+            long count = count();
+            return count == 0 ? 0 : (double) cells.get(SUM) / count;
+        }
+
+        /**
+         * Returns the upper end of the bucket holding quantile q, capped at
+         * the maximum seen, or 0 if nothing has been recorded.
+         */
+        long percentile(double q) {
+            long count = count();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(q * count);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += cells.get(b);
+                if (seen >= rank) {
+                    long upper = b == 0 ? 0 : (b >= 63 ? Long.MAX_VALUE : (1L << b) - 1);
+                    return Math.min(upper, max());
+                }
+            }
+            return max();
+        }
+
+        void reset() {
+            for (int i = 0; i < cells.length(); i++) {
+                cells.set(i, 0);
+            }
+        }
+
+    }
+
+}
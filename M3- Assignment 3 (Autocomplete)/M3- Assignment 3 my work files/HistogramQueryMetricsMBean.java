@@ -0,0 +1,34 @@
+/**
+ * JMX view of a HistogramQueryMetrics. Times are in microseconds.
+ */
+public interface HistogramQueryMetricsMBean {
+
+    long getCount();
+
+    long getLatencyP50Micros();
+
+    long getLatencyP99Micros();
+
+    long getLatencyMaxMicros();
+
+    double getLatencyMeanMicros();
+
+    long getRangeSizeP50();
+
+    long getRangeSizeP99();
+
+    long getRangeSizeMax();
+
+    double getRangeSizeMean();
+
+    double getComparisonsMean();
+
+    long getComparisonsMax();
+
+    long getSortP99Micros();
+
+    double getSortMeanMicros();
+
+    void reset();
+
+}
@@ -0,0 +1,147 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorts an array of int indices by a comparison over the indices, without
+ * boxing them into Integer objects. The sort is a stable merge sort, so
+ * indices that compare equal keep their order, as with Arrays.sort on
+ * objects.
+ */
+class IndexSort {
+
+    /**
+     * Compares the items at two indices.
+     */
+    interface Order {
+        int compare(int a, int b);
+    }
+
+    // runs this short are sorted by insertion
+    private static final int INSERTION = 16;
+
+    // below this many indices parallelSort sorts on the calling thread
+    private static final int PARALLEL_GRAIN = 1 << 13;
+
+    /**
+     * Returns the indices 0..n-1 sorted by order.
+     */
+    static int[] sort(int n, Order order) {
+        int[] a = identity(n);
+        mergeSort(a, a.clone(), 0, n, order);
+        return a;
+    }
+
+    /**
+     * Returns the same result as sort(n, order), splitting large arrays
+     * across the common fork-join pool. order must be safe to call from
+     * several threads at once.
+     */
+    static int[] parallelSort(int n, Order order) {
+        int[] a = identity(n);
+        if (n < PARALLEL_GRAIN || ForkJoinPool.getCommonPoolParallelism() == 1) {
+            mergeSort(a, a.clone(), 0, n, order);
+        }
+        else {
+            ForkJoinPool.commonPool().invoke(new Merge(a, a.clone(), 0, n, order));
+        }
+        return a;
+    }
+
+    /**
+     * Returns 0..n-1.
+     */
+    private static int[] identity(int n) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = i;
+        }
+        return a;
+    }
+
+    /**
+     * Sorts a[from..to) by order. buffer must hold the same elements as a
+     * in that range; it is used as scratch space.
+     */
+    private static void mergeSort(int[] a, int[] buffer, int from, int to, Order order) {
+        if (to - from <= INSERTION) {
+            insertionSort(a, from, to, order);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(buffer, a, from, middle, order);
+        mergeSort(buffer, a, middle, to, order);
+        merge(buffer, a, from, middle, to, order);
+    }
+
+    /**
+     * Merges the sorted runs source[from..middle) and source[middle..to)
+     * into target[from..to), taking from the left run on ties.
+     */
+    private static void merge(int[] source, int[] target, int from, int middle, int to,
+            Order order) {
+        if (order.compare(source[middle - 1], source[middle]) <= 0) {
+            System.arraycopy(source, from, target, from, to - from);
+            return;
+        }
+        int i = from;
+        int j = middle;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < middle && order.compare(source[i], source[j]) <= 0)) {
+                target[k] = source[i++];
+            }
+            else {
+                target[k] = source[j++];
+            }
+        }
+    }
+
+    /**
+     * Sorts a[from..to) by order with an insertion sort.
+     */
+    private static void insertionSort(int[] a, int from, int to, Order order) {
+        for (int i = from + 1; i < to; i++) {
+            int x = a[i];
+            int j = i - 1;
+            while (j >= from && order.compare(a[j], x) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = x;
+        }
+    }
+
+    /**
+     * Sorts a range as mergeSort does, forking the two halves while they
+     * are large enough.
+     */
+    private static class Merge extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] a;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final Order order;
+
+        private Merge(int[] a, int[] buffer, int from, int to, Order order) {
+            this.a = a;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.order = order;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < PARALLEL_GRAIN) {
+                mergeSort(a, buffer, from, to, order);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Merge(buffer, a, from, middle, order),
+                new Merge(buffer, a, middle, to, order));
+            merge(buffer, a, from, middle, to, order);
+        }
+    }
+
+}
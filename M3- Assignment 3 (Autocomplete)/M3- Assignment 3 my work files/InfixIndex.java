@@ -0,0 +1,196 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Word-start index for infix matching: a prefix matches a term if it
+ * starts any word of the term's query, so "york" finds "new york pizza".
+ * The index is a suffix array restricted to word starts (positions holding
+ * a letter or digit that follow a character that is neither). Its entries
+ * are sorted by the suffix of the query from that position, so the
+ * entries a prefix matches form one contiguous range, found by binary
+ * search as in BinarySearch. A range-max index over the entry weights then
+ * yields the matches in descending order of weight without sorting the
+ * range, so a top-k lookup costs O(log n + k log k) however many terms
+ * match.
+ */
+public class InfixIndex {
+
+    private final Term[] terms;
+    private final String[] keys;
+    private final boolean folded;
+    private final int[] termOf;
+    private final int[] startOf;
+    private final RangeMaxIndex index;
+
+    /**
+     * Indexes every word start of the given terms, matching exactly. This
+     * method throws a NullPointerException if terms is null.
+     */
+    public InfixIndex(Term[] terms) {
+        this(terms, false);
+    }
+
+    /**
+     * Indexes every word start of the given terms. If fold is true, matching
+     * ignores case and accents as in Autocomplete(Term[], int, boolean).
+     * This method throws a NullPointerException if terms is null.
+     */
+    public InfixIndex(Term[] terms, boolean fold) {
+        if (terms == null) {
+            throw new NullPointerException();
+        }
+        this.terms = terms.clone();
+        this.folded = fold;
+        this.keys = new String[terms.length];
+        List<int[]> starts = new ArrayList<int[]>();
+        for (int t = 0; t < terms.length; t++) {
+            keys[t] = fold ? Autocomplete.fold(terms[t].query()) : terms[t].query();
+            String key = keys[t];
+            for (int i = 0; i < key.length(); i++) {
+                if (Character.isLetterOrDigit(key.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(key.charAt(i - 1)))) {
+                    starts.add(new int[] {t, i});
+                }
+            }
+        }
+
+        int[][] entries = starts.toArray(new int[0][]);
+        Arrays.parallelSort(entries, (a, b) -> {
+            int c = compareSuffixes(keys[a[0]], a[1], keys[b[0]], b[1]);
+            return c != 0 ? c : Integer.compare(a[0], b[0]);
+        });
+        termOf = new int[entries.length];
+        startOf = new int[entries.length];
+        long[] weights = new long[entries.length];
+        for (int e = 0; e < entries.length; e++) {
+            termOf[e] = entries[e][0];
+            startOf[e] = entries[e][1];
+            weights[e] = this.terms[termOf[e]].weight();
+        }
+        index = new RangeMaxIndex(weights);
+    }
+
+    /**
+     * Returns the number of indexed word starts.
+     */
+    public int size() {
+        return termOf.length;
+    }
+
+    /**
+     * Returns all terms with a word that starts with the given prefix, in
+     * descending order of weight. A term is returned once even if several
+     * of its words match. This method throws a NullPointerException if
+     * prefix is null.
+     */
+    public Term[] allMatches(String prefix) {
+        return topMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the (at most) k heaviest terms with a word that starts with
+     * the given prefix, in descending order of weight. Terms of equal weight
+     * come in the order of their matching words. This method throws a
+     * NullPointerException if prefix is null, and an
+     * IllegalArgumentException if k is negative.
+     */
+    public Term[] topMatches(String prefix, int k) {
+        if (prefix == null) {
+            throw new NullPointerException();
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (folded) {
+            prefix = Autocomplete.fold(prefix);
+        }
+        int first = bound(prefix, false);
+        int last = bound(prefix, true) - 1;
+        RangeMaxIndex.Cursor cursor = index.cursor(first, last);
+        int n = Math.min(Math.min(k, terms.length), Math.max(0, last - first + 1));
+        List<Term> matched = new ArrayList<Term>(n);
+        // at most n terms are ever added, so a table of at least 2n slots
+        // never fills up
+        int[] seen = new int[Integer.highestOneBit(Math.max(1, n)) << 2];
+        while (matched.size() < k && cursor.hasNext()) {
+            int t = termOf[cursor.next()];
+            if (add(seen, t)) {
+                matched.add(terms[t]);
+            }
+        }
+        return matched.toArray(new Term[0]);
+    }
+
+    /**
+     * Adds t to the open-addressing set in table, whose length is a power
+     * of two and whose empty slots hold 0, and returns true if it was not
+     * already there.
+     */
+    private static boolean add(int[] table, int t) {
+        int mask = table.length - 1;
+        int h = t * 0x9E3779B9;
+        for (int i = (h ^ h >>> 16) & mask; ; i = (i + 1) & mask) {
+            if (table[i] == 0) {
+                table[i] = t + 1;
+                return true;
+            }
+            if (table[i] == t + 1) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Returns the first entry whose suffix, cut to the length of prefix, is
+     * not less than prefix (lower) or greater than prefix (upper), or
+     * size() if there is none.
+     */
+    private int bound(String prefix, boolean upper) {
+        int first = 0;
+        int last = termOf.length;
+        while (first < last) {
+            int middle = first + (last - first) / 2;
+            int c = compareFirst(keys[termOf[middle]], startOf[middle], prefix);
+            if (c < 0 || (upper && c == 0)) {
+                first = middle + 1;
+            }
+            else {
+                last = middle;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Compares the first prefix.length() characters of key from start with
+     * prefix, in place.
+     */
+    private static int compareFirst(String key, int start, String prefix) {
+        int n = Math.min(key.length() - start, prefix.length());
+        for (int i = 0; i < n; i++) {
+            char c1 = key.charAt(start + i);
+            char c2 = prefix.charAt(i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return n - prefix.length();
+    }
+
+    /**
+     * Compares the suffix of a from i with the suffix of b from j, in place.
+     */
+    private static int compareSuffixes(String a, int i, String b, int j) {
+        int n = Math.min(a.length() - i, b.length() - j);
+        for (int d = 0; d < n; d++) {
+            char c1 = a.charAt(i + d);
+            char c2 = b.charAt(j + d);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return (a.length() - i) - (b.length() - j);
+    }
+
+}
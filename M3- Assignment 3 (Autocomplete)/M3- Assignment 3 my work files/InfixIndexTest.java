@@ -0,0 +1,78 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * InfixIndexTest.java
+ * JUnit tests for word-start matching in the InfixIndex class.
+ */
+public class InfixIndexTest {
+
+    private static final Term[] TERMS = {
+        new Term("new york pizza", 50), new Term("york", 30), new Term("Pizza Hut", 40),
+        new Term("new-york bagels", 10), new Term("yorkshire", 20), new Term("New York", 60),
+        new Term("new new new", 5), new Term("caf\u00e9 (York)", 35),
+    };
+
+    /** Test case for prefixes of the first, middle, and last words. */
+    @Test
+    public void testMatchesAnyWordStart() {
+        InfixIndex index = new InfixIndex(TERMS);
+        assertMatches(index, "york", 10,
+            "[new york pizza\t50, york\t30, yorkshire\t20, new-york bagels\t10]");
+        assertMatches(index, "york ", 10, "[new york pizza\t50, new-york bagels\t10]");
+        assertMatches(index, "pi", 10, "[new york pizza\t50]");
+        assertMatches(index, "bag", 10, "[new-york bagels\t10]");
+        assertMatches(index, "Y", 10, "[New York\t60, caf\u00e9 (York)\t35]");
+    }
+
+    /** Test case for prefixes that start inside a word. */
+    @Test
+    public void testNoMatchInsideWord() {
+        InfixIndex index = new InfixIndex(TERMS);
+        assertMatches(index, "ork", 10, "[]");
+        assertMatches(index, "shire", 10, "[]");
+        assertMatches(index, "(York", 10, "[]");
+    }
+
+    /** Test case for a term with several matching words. */
+    @Test
+    public void testTermReturnedOnce() {
+        InfixIndex index = new InfixIndex(TERMS);
+        assertMatches(index, "new", 10, "[new york pizza\t50, new-york bagels\t10, new new new\t5]");
+        assertMatches(index, "new", 2, "[new york pizza\t50, new-york bagels\t10]");
+        assertEquals("\nsize\n", 17, index.size());
+    }
+
+    /** Test case for matching that ignores case and accents. */
+    @Test
+    public void testFolded() {
+        InfixIndex index = new InfixIndex(TERMS, true);
+        assertMatches(index, "YORK", 3, "[New York\t60, new york pizza\t50, caf\u00e9 (York)\t35]");
+        assertMatches(index, "Cafe", 10, "[caf\u00e9 (York)\t35]");
+        assertMatches(index, "hut", 10, "[Pizza Hut\t40]");
+    }
+
+    /** Test case for topMatches as the head of allMatches. */
+    @Test
+    public void testTopMatchesIsHeadOfAllMatches() {
+        InfixIndex index = new InfixIndex(TERMS);
+        for (String prefix : new String[] {"", "n", "new", "y", "p", "z"}) {
+            Term[] all = index.allMatches(prefix);
+            for (int k = 0; k <= all.length + 1; k++) {
+                assertEquals("\ntopMatches(" + prefix + ", " + k + ")\n",
+                    Arrays.toString(Arrays.copyOf(all, Math.min(k, all.length))),
+                    Arrays.toString(index.topMatches(prefix, k)));
+            }
+        }
+        assertEquals("\nallMatches()\n", TERMS.length, index.allMatches("").length);
+    }
+
+    private static void assertMatches(InfixIndex index, String prefix, int k, String expected) {
+        assertEquals("\ntopMatches(" + prefix + ", " + k + ")\n", expected,
+            Arrays.toString(index.topMatches(prefix, k)));
+    }
+
+}
@@ -0,0 +1,24 @@
+/**
+ * Shard served by an Autocomplete in this process.
+ */
+public class LocalShard implements AutocompleteShard {
+
+    private final Autocomplete autocomplete;
+
+    /**
+     * Serves the given autocomplete. This method throws a
+     * NullPointerException if autocomplete is null.
+     */
+    public LocalShard(Autocomplete autocomplete) {
+        if (autocomplete == null) {
+            throw new NullPointerException();
+        }
+        this.autocomplete = autocomplete;
+    }
+
+    @Override
+    public Term[] topMatches(String prefix, int k) {
+        return autocomplete.topMatches(prefix, k);
+    }
+
+}
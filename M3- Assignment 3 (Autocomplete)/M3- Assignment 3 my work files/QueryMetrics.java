@@ -0,0 +1,16 @@
+/**
+ * Receives one measurement per Autocomplete.allMatches call. Implementations
+ * are called on the querying thread, so they must be thread-safe and cheap.
+ */
+public interface QueryMetrics {
+
+    /**
+     * Records one query: its total latency, from the call until the result
+     * is ready (including folding the prefix into a search key), the number
+     * of terms in its match range, which is also the length of the result,
+     * the number of key comparisons its search made, and the time spent
+     * sorting the matches by weight. Times are in nanoseconds.
+     */
+    void record(long latencyNanos, int rangeSize, int comparisons, long sortNanos);
+
+}
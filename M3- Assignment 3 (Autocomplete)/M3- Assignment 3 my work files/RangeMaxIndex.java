@@ -0,0 +1,170 @@
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Segment tree over an array of weights that answers "which index in
+ * [lo, hi] has the largest weight" in O(log n). Ties go to the smaller
+ * index, so results agree with a stable sort of the array by weight.
+ */
+class RangeMaxIndex {
+
+    private final long[] weights;
+    private final int n;
+    private final int[] tree;
+
+    /**
+     * Builds the index over weights. The array is not copied and must not
+     * be changed afterwards.
+     */
+    RangeMaxIndex(long[] weights) {
+        this.weights = weights;
+        this.n = weights.length;
+        this.tree = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            tree[n + i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            tree[i] = heavier(tree[2 * i], tree[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Adopts a tree saved from another index over the same weights, as
+     * returned by tree(). Neither array is copied. This method throws an
+     * IllegalArgumentException if the tree has the wrong length or refers
+     * to an index out of range.
+     */
+    RangeMaxIndex(long[] weights, int[] tree) {
+        this.weights = weights;
+        this.n = weights.length;
+        if (tree.length != 2 * n) {
+            throw new IllegalArgumentException("tree length " + tree.length);
+        }
+        for (int i = 1; i < tree.length; i++) {
+            if (tree[i] < 0 || tree[i] >= n) {
+                throw new IllegalArgumentException("tree entry " + tree[i]);
+            }
+        }
+        this.tree = tree;
+    }
+
+    /**
+     * Returns the weights. The array is shared, not copied.
+     */
+    long[] weights() {
+        return weights;
+    }
+
+    /**
+     * Returns the tree, indexed from 1. The array is shared, not copied.
+     */
+    int[] tree() {
+        return tree;
+    }
+
+    /**
+     * Returns the weight at index i.
+     */
+    long weight(int i) {
+        return weights[i];
+    }
+
+    /**
+     * Returns the index of the heaviest weight in [lo, hi]. This method
+     * requires 0 <= lo <= hi < n.
+     */
+    int argMax(int lo, int hi) {
+        int best = lo;
+        for (int l = lo + n, r = hi + n + 1; l < r; l /= 2, r /= 2) {
+            if ((l & 1) == 1) {
+                best = heavier(best, tree[l++]);
+            }
+            if ((r & 1) == 1) {
+                best = heavier(best, tree[--r]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns a cursor over the indices in [lo, hi] in descending order of
+     * weight. An empty range (lo > hi) gives an empty cursor.
+     */
+    Cursor cursor(int lo, int hi) {
+        return new Cursor(lo, hi);
+    }
+
+    /**
+     * Returns whichever of indices a and b has the larger weight, or the
+     * smaller index when the weights are equal.
+     */
+    private int heavier(int a, int b) {
+        if (weights[a] != weights[b]) {
+            return weights[a] > weights[b] ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    /**
+     * Lazy, weight-descending walk over a range. It keeps a priority queue
+     * of disjoint sub-ranges keyed by their heaviest index, so each call to
+     * next costs O(log n) and nothing is copied up front.
+     */
+    class Cursor {
+        private final PriorityQueue<Range> queue = new PriorityQueue<Range>();
+
+        private Cursor(int lo, int hi) {
+            push(lo, hi);
+        }
+
+        /**
+         * Returns true if there are indices left in the range.
+         */
+        boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        /**
+         * Returns the next heaviest index. This method throws a
+         * NoSuchElementException if the range is exhausted.
+         */
+        int next() {
+            Range range = queue.poll();
+            if (range == null) {
+                throw new NoSuchElementException();
+            }
+            push(range.lo, range.max - 1);
+            push(range.max + 1, range.hi);
+            return range.max;
+        }
+
+        private void push(int lo, int hi) {
+            if (lo <= hi) {
+                queue.add(new Range(lo, hi, argMax(lo, hi)));
+            }
+        }
+    }
+
+    /**
+     * A sub-range of the cursor together with its heaviest index.
+     */
+    private class Range implements Comparable<Range> {
+        private final int lo;
+        private final int hi;
+        private final int max;
+
+        private Range(int lo, int hi, int max) {
+            this.lo = lo;
+            this.hi = hi;
+            this.max = max;
+        }
+
+        @Override
+        public int compareTo(Range other) {
+            if (weights[max] != weights[other.max]) {
+                return weights[max] > weights[other.max] ? -1 : 1;
+            }
+            return Integer.compare(max, other.max);
+        }
+    }
+}
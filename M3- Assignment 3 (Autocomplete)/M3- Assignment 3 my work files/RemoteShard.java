@@ -0,0 +1,157 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Shard served by a ShardServer in another process. One connection is kept
+ * open and requests on it are made one at a time. Connecting and every read
+ * of a reply are bounded by a timeout, so a stalled server fails a request
+ * instead of hanging it. After any failed request the connection is
+ * dropped, since part of the reply may still be unread, and the next
+ * request opens a new one.
+ */
+public class RemoteShard implements AutocompleteShard, Closeable {
+
+    // default time allowed for connecting and for each read, in milliseconds
+    private static final int DEFAULT_TIMEOUT = 5_000;
+
+    private final InetSocketAddress address;
+    private final int timeout;
+    private Socket socket;
+    private BufferedReader in;
+    private Writer out;
+    private boolean closed;
+
+    /**
+     * Connects to the ShardServer at host and port with the default timeout.
+     * This method throws an IOException if the connection cannot be made.
+     */
+    public RemoteShard(String host, int port) throws IOException {
+        this(host, port, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Connects to the ShardServer at host and port, allowing timeoutMillis
+     * milliseconds for connecting and for each read of a reply. This method
+     * throws an IOException if the connection cannot be made, and an
+     * IllegalArgumentException if timeoutMillis is not positive.
+     */
+    public RemoteShard(String host, int port, int timeoutMillis) throws IOException {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.address = new InetSocketAddress(host, port);
+        this.timeout = timeoutMillis;
+        connect();
+    }
+
+    /**
+     * Asks the server for its top k matches. This method throws a
+     * NullPointerException if prefix is null, an IllegalArgumentException
+     * if k is negative, and an UncheckedIOException if the server cannot be
+     * reached, does not answer in time, or replies with an error or a
+     * malformed reply.
+     */
+    @Override
+    public synchronized Term[] topMatches(String prefix, int k) {
+        if (prefix == null) {
+            throw new NullPointerException();
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        try {
+            if (socket == null) {
+                if (closed) {
+                    throw new IOException("shard closed");
+                }
+                connect();
+            }
+            out.write("TOP\t" + k + "\t" + ShardServer.escape(prefix) + "\n");
+            out.flush();
+            String header = in.readLine();
+            if (header == null || header.startsWith("ERR")) {
+                throw new IOException("shard replied " + header);
+            }
+            int count = Integer.parseInt(header);
+            if (count < 0 || count > k) {
+                throw new IOException("bad count " + count);
+            }
+            Term[] top = new Term[count];
+            for (int i = 0; i < top.length; i++) {
+                String line = in.readLine();
+                int tab = line == null ? -1 : line.indexOf('\t');
+                if (tab < 0) {
+                    throw new IOException("truncated reply");
+                }
+                top[i] = new Term(ShardServer.unescape(line.substring(tab + 1)),
+                    Long.parseLong(line.substring(0, tab)));
+            }
+            return top;
+        }
+        catch (IllegalArgumentException e) {
+            disconnect();
+            throw new UncheckedIOException(new IOException("malformed reply", e));
+        }
+        catch (IOException e) {
+            disconnect();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        Socket s = socket;
+        socket = null;
+        if (s != null) {
+            s.close();
+        }
+    }
+
+    /**
+     * Opens a new connection to the server.
+     */
+    private void connect() throws IOException {
+        Socket s = new Socket();
+        try {
+            s.connect(address, timeout);
+            s.setSoTimeout(timeout);
+            s.setTcpNoDelay(true);
+            in = new BufferedReader(
+                new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(
+                new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8));
+        }
+        catch (IOException e) {
+            s.close();
+            throw e;
+        }
+        socket = s;
+    }
+
+    /**
+     * Closes the connection after a failed request, so that the rest of its
+     * reply is never read as the answer to a later one.
+     */
+    private void disconnect() {
+        if (socket != null) {
+            try {
+                socket.close();
+            }
+            catch (IOException e) {
+                // the connection is abandoned either way
+            }
+            socket = null;
+        }
+    }
+
+}
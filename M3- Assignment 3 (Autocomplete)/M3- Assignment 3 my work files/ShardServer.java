@@ -0,0 +1,241 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Serves one Autocomplete over TCP so that a shard can run as its own
+ * process. The protocol is line based and UTF-8. A request is
+ *   TOP tab k tab prefix
+ * and the reply is a line with the number of terms n, followed by n lines
+ * of weight tab query, heaviest first; a bad request gets a single line
+ * ERR tab message. A connection may carry any number of requests. Prefixes
+ * and queries are sent escaped (see escape), so line breaks in them cannot
+ * break the framing.
+ *
+ * The split mode cuts a term file into count shard files, termfile.0 to
+ * termfile.(count - 1), with ShardedAutocomplete.partition, and prints the
+ * start key of each shard, escaped, one per line, for the coordinator's
+ * starts array. Each shard file is then served by a server of its own.
+ * Usage: java ShardServer termfile port [k]
+ *        java ShardServer split termfile count
+ */
+public class ShardServer implements Closeable {
+
+    private final Autocomplete autocomplete;
+    private final ServerSocket server;
+
+    /**
+     * Listens on the given port of the loopback address (0 picks a free
+     * port) and serves autocomplete once start is called. This method throws
+     * a NullPointerException if autocomplete is null, and an IOException if
+     * the port cannot be bound.
+     */
+    public ShardServer(Autocomplete autocomplete, int port) throws IOException {
+        if (autocomplete == null) {
+            throw new NullPointerException();
+        }
+        this.autocomplete = autocomplete;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Returns the port this server listens on.
+     */
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections on a daemon thread, serving each one on
+     * a thread of its own.
+     */
+    public void start() {
+        Thread acceptor = new Thread(this::accept, "shard-server-" + port());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Stops accepting connections.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    /** Drives execution. */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("split")) {
+            for (String start : split(Paths.get(args[1]), Integer.parseInt(args[2]))) {
+                System.out.println(escape(start));
+            }
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("usage: java ShardServer termfile port [k]");
+            System.err.println("       java ShardServer split termfile count");
+            return;
+        }
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        ShardServer shard = new ShardServer(AutocompleteLoader.load(Paths.get(args[0]), k),
+            Integer.parseInt(args[1]));
+        System.out.println("serving " + args[0] + " on port " + shard.port());
+        shard.accept();
+    }
+
+    /**
+     * Splits the terms in termfile into at most count shards (see
+     * ShardedAutocomplete.partition), writes shard i to termfile.i in the
+     * same format, and returns the start key of each shard. This method
+     * throws an IOException if a file cannot be read or written, and an
+     * IllegalArgumentException if count is not positive.
+     */
+    public static String[] split(Path termfile, int count) throws IOException {
+        Term[][] parts = ShardedAutocomplete.partition(AutocompleteLoader.loadTerms(termfile),
+            count);
+        for (int i = 0; i < parts.length; i++) {
+            Path shard = termfile.resolveSibling(termfile.getFileName() + "." + i);
+            try (Writer out = Files.newBufferedWriter(shard, StandardCharsets.UTF_8)) {
+                out.write(parts[i].length + "\n");
+                for (Term term : parts[i]) {
+                    out.write(term.weight() + "\t" + term.query() + "\n");
+                }
+            }
+        }
+        return ShardedAutocomplete.starts(parts);
+    }
+
+    /**
+     * Returns s with each backslash, line feed, and carriage return written
+     * as a backslash followed by a backslash, n, or r.
+     */
+    static String escape(String s) {
+        if (s.indexOf('\\') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        StringBuilder escaped = new StringBuilder(s.length() + 8);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                escaped.append("\\\\");
+            }
+            else if (c == '\n') {
+                escaped.append("\\n");
+            }
+            else if (c == '\r') {
+                escaped.append("\\r");
+            }
+            else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Undoes escape. This method throws an IllegalArgumentException if s
+     * has a backslash that does not start one of the three escapes.
+     */
+    static String unescape(String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder plain = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\') {
+                plain.append(c);
+                continue;
+            }
+            char next = ++i < s.length() ? s.charAt(i) : 0;
+            if (next == '\\') {
+                plain.append('\\');
+            }
+            else if (next == 'n') {
+                plain.append('\n');
+            }
+            else if (next == 'r') {
+                plain.append('\r');
+            }
+            else {
+                throw new IllegalArgumentException();
+            }
+        }
+        return plain.toString();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            final Socket socket;
+            try {
+                socket = server.accept();
+            }
+            catch (IOException e) {
+                return;
+            }
+            Thread worker = new Thread(() -> serve(socket), "shard-connection");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Answers requests on socket until the client closes it.
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(
+                new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                answer(line, out);
+                out.flush();
+            }
+        }
+        catch (IOException e) {
+            // the client went away; nothing to do
+        }
+    }
+
+    private void answer(String request, Writer out) throws IOException {
+        String[] fields = request.split("\t", 3);
+        if (fields.length != 3 || !fields[0].equals("TOP")) {
+            out.write("ERR\tmalformed request\n");
+            return;
+        }
+        String prefix;
+        try {
+            prefix = unescape(fields[2]);
+        }
+        catch (IllegalArgumentException e) {
+            out.write("ERR\tbad escape\n");
+            return;
+        }
+        Term[] top;
+        try {
+            top = autocomplete.topMatches(prefix, Integer.parseInt(fields[1]));
+        }
+        catch (IllegalArgumentException e) {
+            out.write("ERR\tbad k\n");
+            return;
+        }
+        out.write(top.length + "\n");
+        for (Term term : top) {
+            out.write(term.weight() + "\t" + escape(term.query()) + "\n");
+        }
+    }
+
+}
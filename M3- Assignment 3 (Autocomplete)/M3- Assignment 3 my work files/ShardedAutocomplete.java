@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Autocomplete split into shards, each owning a contiguous lexicographic
+ * range of the sorted terms. Shard i holds the queries q with
+ * starts[i] <= q < starts[i + 1], and starts[0] is "". A prefix is routed
+ * only to the shards whose range can hold a query that starts with it: the
+ * last shard that starts at or before the prefix, and every following shard
+ * whose start itself begins with the prefix. Those shards are asked in
+ * parallel and their top-k lists are merged by weight.
+ */
+public class ShardedAutocomplete {
+
+    private final String[] starts;
+    private final AutocompleteShard[] shards;
+    private final Executor executor;
+
+    /**
+     * Coordinates the given shards, where shard i starts at starts[i]. This
+     * method throws a NullPointerException if any argument or element is
+     * null, and an IllegalArgumentException if the arrays differ in length,
+     * are empty, starts[0] is not "", or starts is not strictly ascending.
+     */
+    public ShardedAutocomplete(String[] starts, AutocompleteShard[] shards) {
+        this(starts, shards, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Coordinates the given shards as above, querying them on executor.
+     */
+    public ShardedAutocomplete(String[] starts, AutocompleteShard[] shards, Executor executor) {
+        if (starts == null || shards == null || executor == null) {
+            throw new NullPointerException();
+        }
+        if (starts.length != shards.length || starts.length == 0 || !"".equals(starts[0])) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] == null || shards[i] == null) {
+                throw new NullPointerException();
+            }
+            if (i > 0 && starts[i - 1].compareTo(starts[i]) >= 0) {
+                throw new IllegalArgumentException();
+            }
+        }
+        this.starts = starts.clone();
+        this.shards = shards.clone();
+        this.executor = executor;
+    }
+
+    /**
+     * Returns a coordinator over count in-process shards of terms, built by
+     * partition, with trie caches of size k (see Autocomplete(Term[], int)).
+     */
+    public static ShardedAutocomplete local(Term[] terms, int count, int k) {
+        Term[][] parts = partition(terms, count);
+        AutocompleteShard[] shards = new AutocompleteShard[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            shards[i] = new LocalShard(Autocomplete.fromSorted(parts[i], k));
+        }
+        return new ShardedAutocomplete(starts(parts), shards);
+    }
+
+    /**
+     * Splits terms into at most count lexicographic ranges of about equal
+     * size, each sorted in ascending order. Equal queries are never split
+     * across ranges. This method throws a NullPointerException if terms is
+     * null, and an IllegalArgumentException if count is not positive.
+     */
+    public static Term[][] partition(Term[] terms, int count) {
+        if (terms == null) {
+            throw new NullPointerException();
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException();
+        }
+        Term[] sorted = terms.clone();
+        Arrays.parallelSort(sorted);
+        List<Term[]> parts = new ArrayList<Term[]>();
+        int from = 0;
+        for (int i = 1; i <= count && from < sorted.length; i++) {
+            int to = (int) ((long) sorted.length * i / count);
+            while (to > from && to < sorted.length
+                && sorted[to].query().equals(sorted[to - 1].query())) {
+                to++;
+            }
+            if (to > from) {
+                parts.add(Arrays.copyOfRange(sorted, from, to));
+                from = to;
+            }
+        }
+        if (parts.isEmpty()) {
+            parts.add(new Term[0]);
+        }
+        return parts.toArray(new Term[0][]);
+    }
+
+    /**
+     * Returns the start keys of the ranges made by partition: "" for the
+     * first and the first query of each of the others.
+     */
+    public static String[] starts(Term[][] parts) {
+        String[] starts = new String[parts.length];
+        starts[0] = "";
+        for (int i = 1; i < parts.length; i++) {
+            starts[i] = parts[i][0].query();
+        }
+        return starts;
+    }
+
+    /**
+     * Returns the (at most) k heaviest terms of all shards that start with
+     * the given prefix, in descending order of weight. This method throws a
+     * NullPointerException if prefix is null, an IllegalArgumentException if
+     * k is negative, and an UncheckedIOException if a remote shard fails.
+     */
+    public Term[] topMatches(String prefix, final int k) {
+        if (prefix == null) {
+            throw new NullPointerException();
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        int first = shardOf(prefix);
+        int last = first;
+        while (last + 1 < starts.length && starts[last + 1].startsWith(prefix)) {
+            last++;
+        }
+        if (first == last) {
+            return shards[first].topMatches(prefix, k);
+        }
+
+        List<CompletableFuture<Term[]>> asked = new ArrayList<CompletableFuture<Term[]>>();
+        for (int i = first; i <= last; i++) {
+            final AutocompleteShard shard = shards[i];
+            asked.add(CompletableFuture.supplyAsync(() -> shard.topMatches(prefix, k), executor));
+        }
+        Term[][] results = new Term[asked.size()][];
+        try {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = asked.get(i).join();
+            }
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return merge(results, k);
+    }
+
+    /**
+     * Returns the number of shards.
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the index of the last shard whose start is not greater than
+     * key.
+     */
+    private int shardOf(String key) {
+        int first = 0;
+        int last = starts.length;
+        while (first < last) {
+            int middle = first + (last - first) / 2;
+            if (starts[middle].compareTo(key) <= 0) {
+                first = middle + 1;
+            }
+            else {
+                last = middle;
+            }
+        }
+        return first - 1;
+    }
+
+    /**
+     * Merges lists that are each heaviest first into the k heaviest terms.
+     * The lists come from shards in ascending key order, and equal weights
+     * are taken from the earlier list first, so ties keep the lexicographic
+     * order a single Autocomplete would give them.
+     */
+    private static Term[] merge(Term[][] lists, int k) {
+        int total = 0;
+        for (Term[] list : lists) {
+            total += list.length;
+        }
+        Term[] merged = new Term[Math.min(k, total)];
+        int[] next = new int[lists.length];
+        for (int m = 0; m < merged.length; m++) {
+            int best = -1;
+            for (int i = 0; i < lists.length; i++) {
+                if (next[i] < lists[i].length && (best < 0
+                    || lists[i][next[i]].weight() > lists[best][next[best]].weight())) {
+                    best = i;
+                }
+            }
+            merged[m] = lists[best][next[best]++];
+        }
+        return merged;
+    }
+
+}
@@ -0,0 +1,170 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * ShardedAutocompleteTest.java
+ * JUnit tests for partitioning, scatter-gather merging, and the remote
+ * shard protocol of the ShardedAutocomplete classes.
+ */
+public class ShardedAutocompleteTest {
+
+    /** Test case for partition with a run of equal queries filling a range. */
+    @Test
+    public void testPartitionKeepsEqualQueriesTogether() {
+        Term[] terms = {
+            new Term("d", 1), new Term("b", 2), new Term("a", 3),
+            new Term("b", 4), new Term("c", 5), new Term("b", 6),
+        };
+        Term[][] parts = ShardedAutocomplete.partition(terms, 3);
+        String feedback = "\npartition([d, b, a, b, c, b], 3)\n";
+        assertEquals(feedback, "[[a\t3, b\t2, b\t4, b\t6], [c\t5, d\t1]]",
+            Arrays.deepToString(parts));
+        assertEquals(feedback + "starts\n", "[, c]",
+            Arrays.toString(ShardedAutocomplete.starts(parts)));
+    }
+
+    /** Test case for local shards against one Autocomplete. */
+    @Test
+    public void testLocalShardsAgreeWithSingleIndex() {
+        Term[] terms = new Term[64];
+        for (int i = 0; i < terms.length; i++) {
+            // every three-letter word over a..d, weights in a scrambled order
+            String query = "" + (char) ('a' + i / 16) + (char) ('a' + i / 4 % 4)
+                + (char) ('a' + i % 4);
+            terms[i] = new Term(query, i * 37 % 64);
+        }
+        Autocomplete single = new Autocomplete(terms, 4);
+        for (int count : new int[] {1, 2, 5, 64}) {
+            ShardedAutocomplete sharded = ShardedAutocomplete.local(terms, count, 4);
+            for (String prefix : new String[] {"", "a", "b", "bc", "bcd", "e"}) {
+                for (int k : new int[] {0, 1, 4, 10}) {
+                    assertEquals("\n" + count + " shards, topMatches(" + prefix + ", " + k + ")\n",
+                        Arrays.toString(single.topMatches(prefix, k)),
+                        Arrays.toString(sharded.topMatches(prefix, k)));
+                }
+            }
+        }
+    }
+
+    /** Test case for a prefix whose matches lie in two shards. */
+    @Test
+    public void testPrefixSpanningShards() {
+        AutocompleteShard[] shards = {
+            new LocalShard(new Autocomplete(new Term[] {new Term("aa", 1), new Term("a", 5)})),
+            new LocalShard(new Autocomplete(new Term[] {new Term("ab", 3), new Term("abc", 9)})),
+            new LocalShard(new Autocomplete(new Term[] {new Term("b", 7)})),
+        };
+        ShardedAutocomplete sharded = new ShardedAutocomplete(new String[] {"", "ab", "b"}, shards);
+        assertEquals("\ntopMatches(a, 3)\n", "[abc\t9, a\t5, ab\t3]",
+            Arrays.toString(sharded.topMatches("a", 3)));
+    }
+
+    /** Test case for a ShardServer and RemoteShard over loopback. */
+    @Test
+    public void testRemoteShardRoundTrip() throws IOException {
+        Term[] terms = {
+            new Term("new\nline", 4), new Term("back\\slash", 3), new Term("new york", 8),
+            new Term("newt", 2),
+        };
+        Autocomplete autocomplete = new Autocomplete(terms);
+        try (ShardServer server = new ShardServer(autocomplete, 0)) {
+            server.start();
+            try (RemoteShard remote = new RemoteShard("localhost", server.port())) {
+                for (String prefix : new String[] {"", "new", "new\n", "back\\", "x"}) {
+                    assertEquals("\nremote topMatches(" + prefix + ", 3)\n",
+                        Arrays.toString(autocomplete.topMatches(prefix, 3)),
+                        Arrays.toString(remote.topMatches(prefix, 3)));
+                }
+            }
+        }
+    }
+
+    /** Test case for a reply cut short by a malformed line. */
+    @Test
+    public void testMalformedReplyDropsConnection() throws IOException {
+        AtomicInteger connections = new AtomicInteger();
+        // the first reply is malformed and followed by a line that would be
+        // misread as the next reply if the connection were reused
+        try (ServerSocket server = scriptedServer(connections,
+                "2\n9\tab\nbroken\n1\nstale\n", "1\n9\tab\n");
+            RemoteShard remote = new RemoteShard("localhost", server.getLocalPort(), 2_000)) {
+            try {
+                remote.topMatches("a", 2);
+                fail("malformed reply accepted");
+            }
+            catch (UncheckedIOException e) {
+                // expected
+            }
+            assertEquals("\ntopMatches after a malformed reply\n", "[ab\t9]",
+                Arrays.toString(remote.topMatches("a", 2)));
+            assertEquals("\nconnections made\n", 2, connections.get());
+        }
+    }
+
+    /** Test case for a server that stops answering halfway. */
+    @Test
+    public void testStalledReplyTimesOut() throws IOException {
+        AtomicInteger connections = new AtomicInteger();
+        try (ServerSocket server = scriptedServer(connections, "2\n9\tab\n", "1\n9\tab\n");
+            RemoteShard remote = new RemoteShard("localhost", server.getLocalPort(), 200)) {
+            try {
+                remote.topMatches("a", 2);
+                fail("stalled reply returned");
+            }
+            catch (UncheckedIOException e) {
+                // expected
+            }
+            assertEquals("\ntopMatches after a timeout\n", "[ab\t9]",
+                Arrays.toString(remote.topMatches("a", 2)));
+        }
+    }
+
+    /**
+     * Returns a loopback server that answers the first request on its i-th
+     * connection with replies[i], sent as is, and then leaves the connection
+     * open until the client closes it. connections counts the connections
+     * accepted.
+     */
+    private static ServerSocket scriptedServer(final AtomicInteger connections,
+            final String... replies) throws IOException {
+        final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> {
+            for (String reply : replies) {
+                try (Socket socket = server.accept()) {
+                    connections.incrementAndGet();
+                    InputStream in = socket.getInputStream();
+                    int b;
+                    while ((b = in.read()) != -1 && b != '\n') {
+                        // skip the request
+                    }
+                    OutputStream out = socket.getOutputStream();
+                    out.write(reply.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    while (in.read() != -1) {
+                        // hold the connection open
+                    }
+                }
+                catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server;
+    }
+
+}
@@ -0,0 +1,87 @@
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Reproducible synthetic autocomplete dictionaries for benchmarks. Queries
+ * are built from a small set of syllables so that they share prefixes the
+ * way real queries do, and weights follow a Zipf distribution: the term of
+ * popularity rank r has weight proportional to 1 / r^s.
+ */
+public class SyntheticDictionary {
+
+    private static final String[] SYLLABLES = {
+        "a", "an", "ar", "ba", "be", "ca", "co", "da", "de", "el", "en", "fa",
+        "ge", "ha", "in", "la", "le", "ma", "mo", "na", "ne", "or", "pa", "pe",
+        "ra", "re", "sa", "se", "ta", "te", "to", "un", "va", "ye", "yo", "zo",
+    };
+
+    // weight of the most popular term
+    private static final double TOP_WEIGHT = 1e9;
+
+    /**
+     * Returns n distinct terms with Zipf(s) weights, generated from seed.
+     * The same arguments always produce the same terms.
+     */
+    public static Term[] generate(int n, double s, long seed) {
+        Random rng = new Random(seed);
+        Set<String> seen = new HashSet<String>();
+        Term[] terms = new Term[n];
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            int t = rank[i];
+            rank[i] = rank[j];
+            rank[j] = t;
+        }
+        for (int i = 0; i < n; i++) {
+            String query;
+            do {
+                query = randomQuery(rng);
+            } while (!seen.add(query));
+            long weight = Math.round(TOP_WEIGHT / Math.pow(rank[i], s));
+            terms[i] = new Term(query, weight);
+        }
+        return terms;
+    }
+
+    /**
+     * Returns count prefixes of exactly length characters, each cut from a
+     * query in terms chosen with seed. Queries shorter than length are
+     * skipped.
+     */
+    public static String[] prefixes(Term[] terms, int count, int length, long seed) {
+        Random rng = new Random(seed);
+        String[] prefixes = new String[count];
+        int i = 0;
+        while (i < count) {
+            String query = terms[rng.nextInt(terms.length)].query();
+            if (query.length() >= length) {
+                prefixes[i++] = query.substring(0, length);
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * Returns a query of one to three words, each of two to four syllables.
+     */
+    private static String randomQuery(Random rng) {
+        StringBuilder query = new StringBuilder();
+        int words = 1 + rng.nextInt(3);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                query.append(' ');
+            }
+            int syllables = 2 + rng.nextInt(3);
+            for (int i = 0; i < syllables; i++) {
+                query.append(SYLLABLES[rng.nextInt(SYLLABLES.length)]);
+            }
+        }
+        return query.toString();
+    }
+
+}
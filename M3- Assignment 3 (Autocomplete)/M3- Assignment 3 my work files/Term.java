@@ -25,6 +25,20 @@ public class Term implements Comparable<Term> {
 		this.weight = weight;
     }
 
+    /**
+     * Returns the query of this term.
+     */
+    String query() {
+        return query;
+    }
+
+    /**
+     * Returns the weight of this term.
+     */
+    long weight() {
+        return weight;
+    }
+
     /**
      * Compares the two terms in descending order of weight.
      */
@@ -46,6 +60,25 @@ public class Term implements Comparable<Term> {
     
     }
 
+    /**
+     * Compares the first length characters of a and b in lexicographic order,
+     * in place and without allocating. A string shorter than length is
+     * compared as a whole, so this agrees with comparing the two substrings.
+     */
+    static int compareFirst(String a, String b, int length) {
+        int lengthA = Math.min(a.length(), length);
+        int lengthB = Math.min(b.length(), length);
+        int n = Math.min(lengthA, lengthB);
+        for (int k = 0; k < n; k++) {
+            char c1 = a.charAt(k);
+            char c2 = b.charAt(k);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
     /**
      * Compares this term with the other term in ascending lexicographic order
      * of query.
@@ -86,24 +119,7 @@ public class Term implements Comparable<Term> {
 
 		@Override 
 		public int compare(Term one, Term two) {
-			String prefixA;
-			String prefixB;
-			
-			if (one.query.length() < i) {
-                prefixA = one.query;
-            }
-			else {
-                prefixA = one.query.substring(0, i);
-            }
-			
-			if (two.query.length() < i) {
-                prefixB = two.query;
-            }
-			else {
-                prefixB = two.query.substring(0, i);
-            }
-
-			return prefixA.compareTo(prefixB);
+			return compareFirst(one.query, two.query, i);
 		}
 	}
 	
@@ -0,0 +1,399 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Columnar store of autocomplete terms. Query bytes (UTF-8) live in one
+ * contiguous arena, with an offsets column marking where each query starts
+ * and a primitive weights column beside it. The columns are sorted by the
+ * unsigned byte order of the queries, which is the same as code point order.
+ *
+ * A store can be written to a file and later opened by memory-mapping that
+ * file, so a prebuilt dictionary loads in milliseconds without creating any
+ * Term objects, and its pages are shared by every process that maps it.
+ * Each column is mapped on its own, so the file may exceed 2 GB, but the
+ * arena and each column are limited to 2 GB, and so a store to about 268
+ * million terms.
+ */
+public class TermStore {
+
+    private static final int MAGIC = 0x544D5354; // "TMST"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final int size;
+    private final LongBuffer weights;
+    private final IntBuffer offsets;
+    private final ByteBuffer arena;
+
+    private TermStore(int size, LongBuffer weights, IntBuffer offsets, ByteBuffer arena) {
+        this.size = size;
+        this.weights = weights;
+        this.offsets = offsets;
+        this.arena = arena;
+    }
+
+    /**
+     * Builds an in-memory store from the given terms. This method throws a
+     * NullPointerException if terms is null.
+     */
+    public static TermStore of(Term[] terms) {
+        if (terms == null) {
+            throw new NullPointerException();
+        }
+        final byte[][] bytes = new byte[terms.length][];
+        long total = 0;
+        for (int i = 0; i < terms.length; i++) {
+            bytes[i] = terms[i].query().getBytes(StandardCharsets.UTF_8);
+            total += bytes[i].length;
+        }
+        if (total > Integer.MAX_VALUE || 8L * terms.length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        int[] order = IndexSort.sort(terms.length, (a, b) -> compareBytes(bytes[a], bytes[b]));
+
+        long[] w = new long[terms.length];
+        int[] off = new int[terms.length + 1];
+        byte[] data = new byte[(int) total];
+        int pos = 0;
+        for (int i = 0; i < terms.length; i++) {
+            byte[] query = bytes[order[i]];
+            w[i] = terms[order[i]].weight();
+            off[i] = pos;
+            System.arraycopy(query, 0, data, pos, query.length);
+            pos += query.length;
+        }
+        off[terms.length] = pos;
+        return new TermStore(terms.length, LongBuffer.wrap(w), IntBuffer.wrap(off),
+            ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Opens a store previously written with write by memory-mapping the
+     * file read-only. Only the header is read, so this takes the same few
+     * milliseconds at any size: the file must be exactly as long as the
+     * term count implies, and the offsets must start at 0 and end at the
+     * arena length. The columns themselves are checked as they are read,
+     * and a negative weight or an offset out of order found then throws an
+     * IllegalStateException. This method throws an IOException if the file
+     * cannot be read or is not a well-formed term store.
+     */
+    public static TermStore open(Path file) throws IOException {
+        return open(file, false);
+    }
+
+    /**
+     * Opens a store as open(file) does. If verify is true, every weight and
+     * offset is also checked before returning, which reads the whole of
+     * both columns: weights must be non-negative and offsets must never
+     * decrease. This method throws an IOException if the file cannot be
+     * read or is not a well-formed term store.
+     */
+    public static TermStore open(Path file, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("not a term store: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("not a term store: " + file);
+            }
+            int n = header.getInt(8);
+            int arenaLength = header.getInt(12);
+            long expected = HEADER_BYTES + 8L * n + 4L * (n + 1) + arenaLength;
+            if (n < 0 || 8L * n > Integer.MAX_VALUE || arenaLength < 0
+                    || expected != channel.size()) {
+                throw new IOException("truncated term store: " + file);
+            }
+            long weightsAt = HEADER_BYTES;
+            long offsetsAt = weightsAt + 8L * n;
+            long arenaAt = offsetsAt + 4L * (n + 1);
+            LongBuffer weights = map(channel, weightsAt, 8 * n).asLongBuffer();
+            IntBuffer offsets = map(channel, offsetsAt, 4 * (n + 1)).asIntBuffer();
+            if (offsets.get(0) != 0 || offsets.get(n) != arenaLength) {
+                throw new IOException("offsets do not span the arena: " + file);
+            }
+            TermStore store = new TermStore(n, weights, offsets,
+                map(channel, arenaAt, arenaLength));
+            if (verify) {
+                try {
+                    for (int i = 0; i < n; i++) {
+                        store.weight(i);
+                        store.start(i);
+                    }
+                }
+                catch (IllegalStateException e) {
+                    throw new IOException(e.getMessage() + ": " + file);
+                }
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Writes this store to file in the format read by open.
+     */
+    public void write(Path file) throws IOException {
+        int arenaLength = offsets.get(size);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(arenaLength).flip();
+
+        ByteBuffer weightColumn = ByteBuffer.allocate(8 * size);
+        for (int i = 0; i < size; i++) {
+            weightColumn.putLong(weights.get(i));
+        }
+        weightColumn.flip();
+        ByteBuffer offsetColumn = ByteBuffer.allocate(4 * (size + 1));
+        for (int i = 0; i <= size; i++) {
+            offsetColumn.putInt(offsets.get(i));
+        }
+        offsetColumn.flip();
+        ByteBuffer data = arena.duplicate();
+        data.clear();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] all = {header, weightColumn, offsetColumn, data};
+            while (data.hasRemaining() || header.hasRemaining()
+                    || weightColumn.hasRemaining() || offsetColumn.hasRemaining()) {
+                channel.write(all);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of terms in this store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the weight of the i-th term in byte order. This method throws
+     * an IllegalStateException if the stored weight is negative.
+     */
+    public long weight(int i) {
+        long w = weights.get(i);
+        if (w < 0) {
+            throw new IllegalStateException("negative weight at term " + i);
+        }
+        return w;
+    }
+
+    /**
+     * Returns the query of the i-th term in byte order. This method throws
+     * an IllegalStateException if the stored offsets of the term are out of
+     * order.
+     */
+    public String query(int i) {
+        int start = start(i);
+        byte[] b = new byte[offsets.get(i + 1) - start];
+        for (int j = 0; j < b.length; j++) {
+            b[j] = arena.get(start + j);
+        }
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns all terms that start with the given prefix, in descending
+     * order of weight. This method throws a NullPointerException if prefix
+     * is null.
+     */
+    public Term[] allMatches(String prefix) {
+        return topMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the (at most) k heaviest terms that start with the given
+     * prefix, in descending order of weight. Only the selected terms are
+     * decoded. This method throws a NullPointerException if prefix is null,
+     * and an IllegalArgumentException if k is negative.
+     */
+    public Term[] topMatches(String prefix, int k) {
+        if (prefix == null) {
+            throw new NullPointerException();
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        int first = bound(key, false);
+        int last = bound(key, true) - 1;
+        int n = Math.min(k, last - first + 1);
+        if (n <= 0) {
+            return new Term[0];
+        }
+
+        // Radix sort the whole range when all of it is wanted, otherwise
+        // keep only the n heaviest while scanning.
+        int[] order;
+        if (n == last - first + 1) {
+            long[] w = new long[n];
+            for (int i = 0; i < n; i++) {
+                w[i] = weight(first + i);
+            }
+            order = WeightSort.order(w, 0, n);
+            for (int i = 0; i < n; i++) {
+                order[i] += first;
+            }
+        }
+        else {
+            order = heaviest(first, last, n);
+        }
+        Term[] matched = new Term[n];
+        for (int i = 0; i < n; i++) {
+            int j = order[i];
+            matched[i] = new Term(query(j), weight(j));
+        }
+        return matched;
+    }
+
+    /**
+     * Returns the indices of the n heaviest terms in first..last, in
+     * descending order of weight with ties favoring the earlier index,
+     * kept in a primitive min-heap while scanning the range.
+     */
+    private int[] heaviest(int first, int last, int n) {
+        int[] heap = new int[n];
+        int size = 0;
+        for (int i = first; i <= last; i++) {
+            if (size < n) {
+                heap[size] = i;
+                siftUp(heap, size++);
+            }
+            else if (weight(i) > weight(heap[0])) {
+                heap[0] = i;
+                siftDown(heap, size, 0);
+            }
+        }
+        // pop the lightest to the back until the heap is empty
+        for (int end = size - 1; end > 0; end--) {
+            int top = heap[0];
+            heap[0] = heap[end];
+            heap[end] = top;
+            siftDown(heap, end, 0);
+        }
+        return heap;
+    }
+
+    /**
+     * Moves heap[i] up until its parent is no heavier.
+     */
+    private void siftUp(int[] heap, int i) {
+        int x = heap[i];
+        while (i > 0 && lighter(x, heap[(i - 1) / 2])) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = x;
+    }
+
+    /**
+     * Moves heap[i] down within heap[0..size) until no child is lighter.
+     */
+    private void siftDown(int[] heap, int size, int i) {
+        int x = heap[i];
+        while (2 * i + 1 < size) {
+            int c = 2 * i + 1;
+            if (c + 1 < size && lighter(heap[c + 1], heap[c])) {
+                c++;
+            }
+            if (!lighter(heap[c], x)) {
+                break;
+            }
+            heap[i] = heap[c];
+            i = c;
+        }
+        heap[i] = x;
+    }
+
+    /**
+     * Returns true if the term at index a ranks below the one at b: it is
+     * lighter, or equally heavy and later in byte order.
+     */
+    private boolean lighter(int a, int b) {
+        long wa = weight(a);
+        long wb = weight(b);
+        return wa != wb ? wa < wb : a > b;
+    }
+
+    /**
+     * Returns the first index whose query, cut to the length of key, is
+     * greater than key (upper) or not less than key (lower).
+     */
+    private int bound(byte[] key, boolean upper) {
+        int first = 0;
+        int last = size;
+        while (first < last) {
+            int middle = first + (last - first) / 2;
+            int c = comparePrefix(middle, key);
+            if (c < 0 || (upper && c == 0)) {
+                first = middle + 1;
+            }
+            else {
+                last = middle;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Compares the first key.length bytes of the i-th query with key, in
+     * place in the arena.
+     */
+    private int comparePrefix(int i, byte[] key) {
+        int start = start(i);
+        int length = offsets.get(i + 1) - start;
+        int n = Math.min(length, key.length);
+        for (int j = 0; j < n; j++) {
+            int a = arena.get(start + j) & 0xFF;
+            int b = key[j] & 0xFF;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return Math.min(length, key.length) - key.length;
+    }
+
+    /**
+     * Returns the offset of the i-th query in the arena, after checking that
+     * the query lies inside the arena and does not end before it starts.
+     * This method throws an IllegalStateException if the check fails.
+     */
+    private int start(int i) {
+        int start = offsets.get(i);
+        int end = offsets.get(i + 1);
+        if (start < 0 || start > end || end > arena.limit()) {
+            throw new IllegalStateException("offsets out of order at term " + i);
+        }
+        return start;
+    }
+
+    /**
+     * Compares two byte arrays in unsigned lexicographic order.
+     */
+    private static int compareBytes(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Maps length bytes of channel starting at position, read-only.
+     */
+    private static ByteBuffer map(FileChannel channel, long position, int length)
+            throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+}
@@ -0,0 +1,508 @@
+import java.util.Arrays;
+
+/**
+ * Compressed trie over the sorted search keys of an array of terms. Every
+ * node covers a contiguous range of the array and caches the indices of the
+ * k heaviest terms in that range, so a prefix lookup costs the length of
+ * the prefix plus k, no matter how many terms match.
+ */
+class TermTrie {
+
+    private final String[] keys;
+    private final long[] weights;
+    private final int k;
+    private final Node root;
+
+    /**
+     * A node of the trie. The path to a node spells the first depth
+     * characters of keys[lo], and chains of single-child nodes are
+     * collapsed into one edge.
+     */
+    private static class Node {
+        private int depth;
+        private int lo;
+        private int hi;
+        private char[] labels;
+        private Node[] children;
+        private int[] top;
+    }
+
+    /**
+     * Builds a trie over keys, which must already be sorted, with weights
+     * giving the weight of each key, caching the k heaviest per node.
+     * Neither array is copied.
+     */
+    TermTrie(String[] keys, long[] weights, int k) {
+        this.keys = keys;
+        this.weights = weights;
+        this.k = k;
+        if (keys.length == 0) {
+            root = null;
+        }
+        else {
+            root = build(0, keys.length - 1, 0);
+        }
+    }
+
+    /**
+     * Restores a trie over keys and weights, caching the k heaviest per
+     * node, from the layout returned by layout() on a trie built over the
+     * same arrays. The layout is checked to describe a well-formed trie over
+     * keys; this method throws an IllegalArgumentException if it does not.
+     */
+    TermTrie(String[] keys, long[] weights, int k, int[] layout) {
+        this.keys = keys;
+        this.weights = weights;
+        this.k = k;
+        int[] at = {0};
+        if (keys.length == 0) {
+            root = null;
+        }
+        else {
+            root = read(layout, at, 0, keys.length - 1, 0);
+        }
+        if (at[0] != layout.length) {
+            throw new IllegalArgumentException("trailing trie layout");
+        }
+    }
+
+    /**
+     * Returns the nodes of this trie in preorder, each as its depth, lo,
+     * hi, number of children, and number of cached terms, followed by the
+     * indices of those terms. Edge labels are not stored: the edge into a
+     * child starts with the character of keys[child.lo] at the parent's
+     * depth.
+     */
+    int[] layout() {
+        int[] size = {0};
+        count(root, size);
+        int[] layout = new int[size[0]];
+        if (root != null) {
+            write(root, layout, 0);
+        }
+        return layout;
+    }
+
+    /**
+     * Adds the layout length of the subtree at node to size[0].
+     */
+    private static void count(Node node, int[] size) {
+        if (node == null) {
+            return;
+        }
+        size[0] += 5 + node.top.length;
+        if (node.children != null) {
+            for (Node child : node.children) {
+                count(child, size);
+            }
+        }
+    }
+
+    /**
+     * Writes the layout of the subtree at node into layout from at, and
+     * returns the position after it.
+     */
+    private static int write(Node node, int[] layout, int at) {
+        int count = node.children == null ? 0 : node.children.length;
+        layout[at++] = node.depth;
+        layout[at++] = node.lo;
+        layout[at++] = node.hi;
+        layout[at++] = count;
+        layout[at++] = node.top.length;
+        System.arraycopy(node.top, 0, layout, at, node.top.length);
+        at += node.top.length;
+        for (int c = 0; c < count; c++) {
+            at = write(node.children[c], layout, at);
+        }
+        return at;
+    }
+
+    /**
+     * Reads the node at layout[at[0]], which must cover keys[lo..hi] at a
+     * depth of at least minDepth, and its subtree, advancing at[0] past
+     * them.
+     */
+    private Node read(int[] layout, int[] at, int lo, int hi, int minDepth) {
+        int p = at[0];
+        if (layout.length - p < 5) {
+            throw new IllegalArgumentException("truncated trie layout");
+        }
+        Node node = new Node();
+        node.depth = layout[p];
+        node.lo = layout[p + 1];
+        node.hi = layout[p + 2];
+        int count = layout[p + 3];
+        int size = layout[p + 4];
+        if (node.lo != lo || node.hi != hi || node.depth < minDepth
+            || node.depth > keys[lo].length() || count < 0 || count > hi - lo + 1
+            || size != Math.min(k, hi - lo + 1) || layout.length - p - 5 < size) {
+            throw new IllegalArgumentException("bad trie node at " + p);
+        }
+        node.top = Arrays.copyOfRange(layout, p + 5, p + 5 + size);
+        for (int i = 0; i < size; i++) {
+            if (node.top[i] < lo || node.top[i] > hi
+                || (i > 0 && !heavier(node.top[i - 1], node.top[i]))) {
+                throw new IllegalArgumentException("bad trie node at " + p);
+            }
+        }
+        at[0] = p + 5 + size;
+
+        if (count > 0) {
+            node.labels = new char[count];
+            node.children = new Node[count];
+            // children cover the end of [lo, hi], one after another
+            int childLo = at[0] + 1 < layout.length ? layout[at[0] + 1] : -1;
+            if (childLo < lo || childLo > hi) {
+                throw new IllegalArgumentException("bad trie node at " + p);
+            }
+            for (int c = 0; c < count; c++) {
+                int childHi = at[0] + 2 < layout.length ? layout[at[0] + 2] : -1;
+                if (childHi < childLo || childHi > hi || keys[childLo].length() <= node.depth) {
+                    throw new IllegalArgumentException("bad trie node at " + p);
+                }
+                node.labels[c] = keys[childLo].charAt(node.depth);
+                if (c > 0 && node.labels[c - 1] >= node.labels[c]) {
+                    throw new IllegalArgumentException("bad trie node at " + p);
+                }
+                node.children[c] = read(layout, at, childLo, childHi, node.depth + 1);
+                childLo = childHi + 1;
+            }
+            if (childLo != hi + 1) {
+                throw new IllegalArgumentException("bad trie node at " + p);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns the number of terms cached at each node.
+     */
+    int cacheSize() {
+        return k;
+    }
+
+    /**
+     * Returns the indices of the (at most) limit heaviest terms that start
+     * with prefix, in descending order of weight. Terms of equal weight keep
+     * their lexicographic order. The limit must not exceed cacheSize().
+     */
+    int[] top(String prefix, int limit) {
+        Node node = root;
+        int i = 0;
+        while (node != null) {
+            String path = keys[node.lo];
+            int end = Math.min(node.depth, prefix.length());
+            for (; i < end; i++) {
+                if (path.charAt(i) != prefix.charAt(i)) {
+                    return new int[0];
+                }
+            }
+            if (prefix.length() <= node.depth) {
+                return Arrays.copyOf(node.top, Math.min(limit, node.top.length));
+            }
+            node = child(node, prefix.charAt(node.depth));
+        }
+        return new int[0];
+    }
+
+    /**
+     * Returns the cached heavy terms that lie within maxEdits edits of
+     * prefix, that is, whose query starts with some string at most maxEdits
+     * insertions, deletions, or substitutions away from prefix, each packed
+     * as the fewest edits it needs in the high 32 bits and its index in the
+     * low 32 bits, in no particular order. The walk computes one row of the
+     * edit distance table per trie character and abandons a branch as soon
+     * as no cell in the row can still reach a cheaper match, so it only
+     * visits the part of the trie near prefix. It also stops early, with
+     * whatever it has found, once System.nanoTime() passes deadline.
+     */
+    long[] fuzzy(String prefix, int maxEdits, long deadline) {
+        Costs found = new Costs();
+        if (root != null) {
+            // Row i holds the distances from the first i characters of the
+            // trie path. A row deeper than prefix.length() + maxEdits cannot
+            // beat maxEdits + 1, so the walk never fills more rows than this.
+            int[][] rows = new int[prefix.length() + maxEdits + 2][prefix.length() + 1];
+            for (int j = 0; j <= prefix.length(); j++) {
+                rows[0][j] = j;
+            }
+            fuzzy(root, 0, rows, prefix, maxEdits + 1, deadline, found);
+        }
+        return found.pairs();
+    }
+
+    /**
+     * Continues the fuzzy walk along the edge into node, starting at
+     * character from, whose edit distance row is rows[from]. Rows below
+     * from are overwritten, rows up to from are not. Only matches that cost
+     * less than bound, the cheapest match already found above node, are
+     * recorded, each lowering the cost of node's cached terms in found.
+     */
+    private void fuzzy(Node node, int from, int[][] rows, String prefix, int bound,
+        long deadline, Costs found) {
+        if (System.nanoTime() > deadline) {
+            return;
+        }
+        String path = keys[node.lo];
+        int m = prefix.length();
+        int i = from;
+        for (; ; i++) {
+            int[] row = rows[i];
+            if (row[m] < bound) {
+                bound = row[m];
+                for (int t : node.top) {
+                    found.lower(t, bound);
+                }
+            }
+            int min = Integer.MAX_VALUE;
+            for (int cost : row) {
+                min = Math.min(min, cost);
+            }
+            if (min >= bound) {
+                return;
+            }
+            if (i == node.depth) {
+                break;
+            }
+            nextRow(row, rows[i + 1], path.charAt(i), prefix);
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                fuzzy(child, i, rows, prefix, bound, deadline, found);
+            }
+        }
+    }
+
+    /**
+     * Fills next with the edit distance row after appending c to the trie
+     * path whose row is row.
+     */
+    private static void nextRow(int[] row, int[] next, char c, String prefix) {
+        next[0] = row[0] + 1;
+        for (int j = 1; j < row.length; j++) {
+            int substitute = row[j - 1] + (prefix.charAt(j - 1) == c ? 0 : 1);
+            next[j] = Math.min(substitute, Math.min(row[j], next[j - 1]) + 1);
+        }
+    }
+
+    /**
+     * Returns the child of node whose edge starts with c, or null.
+     */
+    private static Node child(Node node, char c) {
+        if (node.labels == null) {
+            return null;
+        }
+        int i = Arrays.binarySearch(node.labels, c);
+        if (i < 0) {
+            return null;
+        }
+        return node.children[i];
+    }
+
+    /**
+     * Builds the node for keys[lo..hi], all of which share their first
+     * depth characters.
+     */
+    private Node build(int lo, int hi, int depth) {
+        // Collapse chains: extend the edge while every term in the range
+        // is longer than depth and agrees on the next character.
+        while (keys[lo].length() > depth
+            && keys[lo].charAt(depth) == keys[hi].charAt(depth)) {
+            depth++;
+        }
+        Node node = new Node();
+        node.depth = depth;
+        node.lo = lo;
+        node.hi = hi;
+
+        // Terms that end exactly here sort ahead of all longer ones.
+        int first = lo;
+        while (first <= hi && keys[first].length() == depth) {
+            first++;
+        }
+
+        int count = 0;
+        for (int i = first; i <= hi; i = groupEnd(i, hi, depth) + 1) {
+            count++;
+        }
+        // Each child's list is already in order, so the node's list is a
+        // k-way merge of them and the heaviest of the terms ending here.
+        int[][] lists = new int[count + 1][];
+        lists[0] = heaviest(lo, first - 1);
+
+        if (count > 0) {
+            node.labels = new char[count];
+            node.children = new Node[count];
+            int c = 0;
+            for (int i = first; i <= hi; c++) {
+                int end = groupEnd(i, hi, depth);
+                node.labels[c] = keys[i].charAt(depth);
+                node.children[c] = build(i, end, depth + 1);
+                lists[c + 1] = node.children[c].top;
+                i = end + 1;
+            }
+        }
+        node.top = merge(lists);
+        return node;
+    }
+
+    /**
+     * Returns the last index in keys[from..hi] whose character at depth
+     * equals that of keys[from].
+     */
+    private int groupEnd(int from, int hi, int depth) {
+        char c = keys[from].charAt(depth);
+        int end = from;
+        while (end < hi && keys[end + 1].charAt(depth) == c) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the indices of the (at most) k heaviest keys in keys[lo..hi],
+     * in descending order of weight and ascending index on ties.
+     */
+    private int[] heaviest(int lo, int hi) {
+        int[] top = new int[Math.max(0, Math.min(k, hi - lo + 1))];
+        int size = 0;
+        for (int i = lo; i <= hi; i++) {
+            if (size == top.length && !heavier(i, top[size - 1])) {
+                continue;
+            }
+            int j = size < top.length ? size++ : size - 1;
+            for (; j > 0 && heavier(i, top[j - 1]); j--) {
+                top[j] = top[j - 1];
+            }
+            top[j] = i;
+        }
+        return top;
+    }
+
+    /**
+     * Merges lists, each in descending order of weight and ascending index
+     * on ties, and returns the first (at most) k indices of the result.
+     */
+    private int[] merge(int[][] lists) {
+        int total = 0;
+        int[] heap = new int[lists.length];
+        int size = 0;
+        for (int l = 0; l < lists.length; l++) {
+            total += lists[l].length;
+            if (lists[l].length > 0) {
+                heap[size++] = l;
+            }
+        }
+        int[] next = new int[lists.length];
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(heap, size, i, lists, next);
+        }
+        int[] top = new int[Math.min(k, total)];
+        for (int t = 0; t < top.length; t++) {
+            int l = heap[0];
+            top[t] = lists[l][next[l]++];
+            if (next[l] == lists[l].length) {
+                heap[0] = heap[--size];
+            }
+            siftDown(heap, size, 0, lists, next);
+        }
+        return top;
+    }
+
+    /**
+     * Restores the heap order of the lists in heap[0..size) below slot i,
+     * comparing lists by the term each one has next.
+     */
+    private void siftDown(int[] heap, int size, int i, int[][] lists, int[] next) {
+        int l = heap[i];
+        while (2 * i + 1 < size) {
+            int c = 2 * i + 1;
+            if (c + 1 < size && heavier(lists[heap[c + 1]][next[heap[c + 1]]],
+                lists[heap[c]][next[heap[c]]])) {
+                c++;
+            }
+            if (!heavier(lists[heap[c]][next[heap[c]]], lists[l][next[l]])) {
+                break;
+            }
+            heap[i] = heap[c];
+            i = c;
+        }
+        heap[i] = l;
+    }
+
+    /**
+     * Returns true if the term at index a ranks ahead of the one at b: it
+     * is heavier, or equally heavy and earlier in the array.
+     */
+    private boolean heavier(int a, int b) {
+        long wa = weights[a];
+        long wb = weights[b];
+        return wa != wb ? wa > wb : a < b;
+    }
+
+    /**
+     * Open-addressing map from term index to the fewest edits found for it.
+     * Each slot packs the index plus one in the high 32 bits and the edits
+     * in the low 32 bits, and empty slots hold 0. The table doubles before
+     * it is half full.
+     */
+    private static class Costs {
+        private long[] table = new long[16];
+        private int size;
+
+        /**
+         * Records that term t matches with the given number of edits,
+         * unless it is already recorded with fewer.
+         */
+        private void lower(int t, int edits) {
+            int mask = table.length - 1;
+            long key = (long) (t + 1) << 32;
+            int h = t * 0x9E3779B9;
+            for (int i = (h ^ h >>> 16) & mask; ; i = (i + 1) & mask) {
+                if (table[i] == 0) {
+                    table[i] = key | edits;
+                    if (++size * 2 > table.length) {
+                        grow();
+                    }
+                    return;
+                }
+                if ((table[i] & 0xFFFFFFFF00000000L) == key) {
+                    if (edits < (int) table[i]) {
+                        table[i] = key | edits;
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Moves every entry into a table twice as long.
+         */
+        private void grow() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            size = 0;
+            for (long slot : old) {
+                if (slot != 0) {
+                    lower((int) (slot >>> 32) - 1, (int) slot);
+                }
+            }
+        }
+
+        /**
+         * Returns the entries, each packed as edits in the high 32 bits and
+         * index in the low 32 bits.
+         */
+        private long[] pairs() {
+            long[] pairs = new long[size];
+            int n = 0;
+            for (long slot : table) {
+                if (slot != 0) {
+                    pairs[n++] = (slot & 0xFFFFFFFFL) << 32 | ((slot >>> 32) - 1);
+                }
+            }
+            return pairs;
+        }
+    }
+
+}
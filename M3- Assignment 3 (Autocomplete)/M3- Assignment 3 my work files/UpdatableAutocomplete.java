@@ -0,0 +1,248 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Autocomplete that accepts new terms and weight changes while serving.
+ *
+ * Updates go into a small sorted delta that sits on top of an immutable
+ * Autocomplete base, and queries merge the two. Once the delta grows past a
+ * threshold it is compacted into a fresh base on a background thread, so
+ * recent changes are visible right away and a full rebuild never blocks
+ * readers or writers. Closing the structure stops the background thread;
+ * it still answers queries and takes updates afterwards, but compacts only
+ * when compact is called.
+ */
+public class UpdatableAutocomplete implements AutoCloseable {
+
+    private static final int DEFAULT_THRESHOLD = 10_000;
+
+    private final ConcurrentSkipListMap<String, Long> delta;
+    private final AtomicInteger deltaSize;
+    private final int cacheSize;
+    private final int threshold;
+    private final AtomicBoolean compacting;
+    private final AtomicLong version;
+    private final ExecutorService compactor;
+    private volatile Autocomplete base;
+
+    /**
+     * Initializes the structure from the given array of terms. This method
+     * throws a NullPointerException if terms is null.
+     */
+    public UpdatableAutocomplete(Term[] terms) {
+        this(terms, 0, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Initializes the structure from the given array of terms. Each base
+     * caches the k heaviest terms per prefix (see Autocomplete), which
+     * topMatches uses while its k plus the pending updates under the prefix
+     * fit in the cache. The delta is compacted in the background once it
+     * holds threshold entries. This method throws a NullPointerException if
+     * terms is null, and an IllegalArgumentException if k is negative or
+     * threshold is not positive.
+     */
+    public UpdatableAutocomplete(Term[] terms, int k, int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.base = new Autocomplete(terms, k);
+        this.cacheSize = k;
+        this.threshold = threshold;
+        this.delta = new ConcurrentSkipListMap<String, Long>();
+        this.deltaSize = new AtomicInteger();
+        this.compacting = new AtomicBoolean();
+        this.version = new AtomicLong();
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "autocomplete-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Inserts the query with the given weight, or changes its weight if it
+     * is already present. This method throws a NullPointerException if
+     * query is null, and an IllegalArgumentException if weight is negative.
+     */
+    public void put(String query, long weight) {
+        if (query == null) {
+            throw new NullPointerException();
+        }
+        if (weight < 0) {
+            throw new IllegalArgumentException();
+        }
+        // ConcurrentSkipListMap.size() walks the whole map, so the entry
+        // count is kept beside it
+        int size = delta.put(query, weight) == null
+            ? deltaSize.incrementAndGet() : deltaSize.get();
+        version.incrementAndGet();
+        if (size >= threshold && !compactor.isShutdown()
+            && compacting.compareAndSet(false, true)) {
+            try {
+                compactor.execute(() -> {
+                    try {
+                        compact();
+                    }
+                    finally {
+                        compacting.set(false);
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                // closed meanwhile; the delta waits for a direct compact()
+                compacting.set(false);
+            }
+        }
+    }
+
+    /**
+     * Stops the background compaction thread, letting a compaction already
+     * under way finish.
+     */
+    @Override
+    public void close() {
+        compactor.shutdown();
+    }
+
+    /**
+     * Returns a counter that increases every time the terms change.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Returns all terms that start with the given prefix, in descending
+     * order of weight. This method throws a NullPointerException if prefix
+     * is null.
+     */
+    public Term[] allMatches(String prefix) {
+        return topMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the (at most) k heaviest terms that start with the given
+     * prefix, in descending order of weight and then ascending order of
+     * query, exactly as a compacted Autocomplete orders them. This method
+     * throws a NullPointerException if prefix is null, and an
+     * IllegalArgumentException if k is negative.
+     */
+    public Term[] topMatches(String prefix, int k) {
+        if (prefix == null) {
+            throw new NullPointerException();
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        // Read the delta before the base: compaction publishes a new base
+        // before it drops entries from the delta, so every update is seen
+        // in at least one of the two.
+        Map<String, Long> recent = new TreeMap<String, Long>();
+        for (Map.Entry<String, Long> e : delta.tailMap(prefix).entrySet()) {
+            if (!e.getKey().startsWith(prefix)) {
+                break;
+            }
+            recent.put(e.getKey(), e.getValue());
+        }
+        List<Term> added = new ArrayList<Term>();
+        for (Map.Entry<String, Long> e : recent.entrySet()) {
+            added.add(new Term(e.getKey(), e.getValue()));
+        }
+        // a stable sort of entries in query order, so ties stay in query
+        // order
+        added.sort(Term.byDescendingWeightOrder());
+
+        // Every updated query hides at most one base term, so the base's
+        // k + recent.size() heaviest still hold the k heaviest unchanged
+        // ones, and its trie can answer when that many are cached.
+        Iterator<Term> itr;
+        if ((long) k + recent.size() <= cacheSize) {
+            itr = Arrays.asList(base.topMatches(prefix, k + recent.size())).iterator();
+        }
+        else {
+            itr = base.matchIterator(prefix);
+        }
+        List<Term> matched = new ArrayList<Term>();
+        int next = 0;
+        Term pending = nextUnchanged(itr, recent);
+        while (matched.size() < k && (pending != null || next < added.size())) {
+            if (pending == null || (next < added.size()
+                && ranksBefore(added.get(next), pending))) {
+                matched.add(added.get(next++));
+            }
+            else {
+                matched.add(pending);
+                pending = nextUnchanged(itr, recent);
+            }
+        }
+        return matched.toArray(new Term[matched.size()]);
+    }
+
+    /**
+     * Folds every pending update into a new base, then removes the folded
+     * entries from the delta. Updates that arrive meanwhile stay in the
+     * delta. This is called in the background automatically, but may also
+     * be called directly.
+     */
+    public synchronized void compact() {
+        Map<String, Long> snapshot = new TreeMap<String, Long>(delta);
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        Term[] old = base.terms();
+        List<Term> merged = new ArrayList<Term>(old.length + snapshot.size());
+        for (Term t : old) {
+            if (!snapshot.containsKey(t.query())) {
+                merged.add(t);
+            }
+        }
+        for (Map.Entry<String, Long> e : snapshot.entrySet()) {
+            merged.add(new Term(e.getKey(), e.getValue()));
+        }
+        base = new Autocomplete(merged.toArray(new Term[merged.size()]), cacheSize);
+        for (Map.Entry<String, Long> e : snapshot.entrySet()) {
+            if (delta.remove(e.getKey(), e.getValue())) {
+                deltaSize.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns true if a comes before b in Autocomplete's result order: it
+     * is heavier, or equally heavy with a smaller query.
+     */
+    private static boolean ranksBefore(Term a, Term b) {
+        if (a.weight() != b.weight()) {
+            return a.weight() > b.weight();
+        }
+        return a.query().compareTo(b.query()) < 0;
+    }
+
+    /**
+     * Returns the next term from itr whose query has not been updated, or
+     * null if there is none.
+     */
+    private static Term nextUnchanged(Iterator<Term> itr, Map<String, Long> recent) {
+        while (itr.hasNext()) {
+            Term t = itr.next();
+            if (!recent.containsKey(t.query())) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,140 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * UpdatableAutocompleteTest.java
+ * JUnit tests for updates, merged queries, and compaction in the
+ * UpdatableAutocomplete class.
+ */
+public class UpdatableAutocompleteTest {
+
+    private UpdatableAutocomplete autocomplete;
+
+    private String feedback;
+
+    @Before
+    public void setup() {
+        Term[] terms = {
+            new Term("a", 50),
+            new Term("c", 44),
+            new Term("cc", 44),
+            new Term("ca", 10),
+            new Term("d", 5),
+        };
+        // a threshold this high never compacts on its own
+        autocomplete = new UpdatableAutocomplete(terms, 4, 1_000);
+        feedback = "\nBase: [a 50, c 44, cc 44, ca 10, d 5], cached top 4\n";
+    }
+
+    @After
+    public void teardown() {
+        autocomplete.close();
+    }
+
+    @Test
+    public void testPutNewTermIsVisible() {
+        feedback += "put(cab, 20), allMatches(ca)\n";
+        autocomplete.put("cab", 20);
+        String expected = "[cab\t20, ca\t10]";
+        String actual = Arrays.toString(autocomplete.allMatches("ca"));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testPutReplacesBaseWeight() {
+        feedback += "put(d, 60), topMatches(, 2)\n";
+        autocomplete.put("d", 60);
+        String expected = "[d\t60, a\t50]";
+        String actual = Arrays.toString(autocomplete.topMatches("", 2));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test
+    public void testTiesMergeInQueryOrder() {
+        feedback += "put(b, 44), topMatches(, 3)\n";
+        autocomplete.put("b", 44);
+        String expected = "[a\t50, b\t44, c\t44]";
+        assertEquals(feedback + "before compact()\n", expected,
+            Arrays.toString(autocomplete.topMatches("", 3)));
+        autocomplete.compact();
+        assertEquals(feedback + "after compact()\n", expected,
+            Arrays.toString(autocomplete.topMatches("", 3)));
+    }
+
+    @Test
+    public void testCompactKeepsEveryAnswer() {
+        autocomplete.put("cd", 44);
+        autocomplete.put("a", 1);
+        autocomplete.put("e", 44);
+        feedback += "put(cd, 44), put(a, 1), put(e, 44)\n";
+        String[] prefixes = {"", "a", "c", "cc", "d", "e", "z"};
+        String[] before = new String[prefixes.length * 6];
+        for (int i = 0; i < prefixes.length; i++) {
+            for (int k = 0; k < 6; k++) {
+                before[6 * i + k] = Arrays.toString(autocomplete.topMatches(prefixes[i], k));
+            }
+        }
+        autocomplete.compact();
+        for (int i = 0; i < prefixes.length; i++) {
+            for (int k = 0; k < 6; k++) {
+                assertEquals(feedback + "topMatches(" + prefixes[i] + ", " + k + ")\n",
+                    before[6 * i + k], Arrays.toString(autocomplete.topMatches(prefixes[i], k)));
+            }
+        }
+    }
+
+    @Test
+    public void testVersionCountsUpdates() {
+        feedback += "put(a, 1), put(a, 2)\n";
+        long start = autocomplete.version();
+        autocomplete.put("a", 1);
+        autocomplete.put("a", 2);
+        assertEquals(feedback, start + 2, autocomplete.version());
+    }
+
+    @Test
+    public void testBackgroundCompactionAtThreshold() throws InterruptedException {
+        UpdatableAutocomplete small = new UpdatableAutocomplete(new Term[0], 2, 2);
+        try {
+            feedback = "\nEmpty base, threshold 2\nput(x, 1), put(y, 2), put(xy, 3)\n";
+            small.put("x", 1);
+            small.put("y", 2);
+            small.put("xy", 3);
+            // the answer is the same whether or not compaction has finished
+            for (int i = 0; i < 50; i++) {
+                assertEquals(feedback, "[xy\t3, y\t2, x\t1]",
+                    Arrays.toString(small.topMatches("", 3)));
+                Thread.sleep(1);
+            }
+        }
+        finally {
+            small.close();
+        }
+    }
+
+    @Test
+    public void testUpdatesAfterClose() {
+        feedback += "close(), put(ce, 45), topMatches(c, 2)\n";
+        autocomplete.close();
+        autocomplete.put("ce", 45);
+        String expected = "[ce\t45, c\t44]";
+        String actual = Arrays.toString(autocomplete.topMatches("c", 2));
+        assertEquals(feedback, expected, actual);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutNegativeWeight() {
+        autocomplete.put("a", -1);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testTopMatchesNullPrefix() {
+        autocomplete.topMatches(null, 1);
+    }
+
+}
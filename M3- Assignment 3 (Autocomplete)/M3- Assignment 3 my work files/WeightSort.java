@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * Orders a range of terms by descending weight with an LSD radix sort over
+ * primitive keys instead of a comparator sort over Term objects. Each pass
+ * is a stable counting sort on one byte of the key, so terms of equal weight
+ * keep their original (lexicographic) order, exactly as with
+ * Term.byDescendingWeightOrder and a stable object sort. Passes over a byte
+ * that is the same in every key are skipped, so weights that fit in 32 bits
+ * need at most four passes.
+ */
+class WeightSort {
+
+    // below this many terms the comparator sort is faster
+    static final int THRESHOLD = 64;
+
+    private static final int RADIX = 256;
+
+    /**
+     * Returns terms[first..last) in descending order of weight, breaking
+     * ties by position. weights[i] must be the weight of terms[i].
+     */
+    static Term[] descending(Term[] terms, long[] weights, int first, int last) {
+        int n = last - first;
+        if (n < THRESHOLD) {
+            Term[] matched = Arrays.copyOfRange(terms, first, last);
+            Arrays.sort(matched, Term.byDescendingWeightOrder());
+            return matched;
+        }
+
+        int[] order = order(weights, first, last);
+        Term[] matched = new Term[n];
+        for (int i = 0; i < n; i++) {
+            matched[i] = terms[order[i]];
+        }
+        return matched;
+    }
+
+    /**
+     * Returns the indices first..last-1 in descending order of weights[i],
+     * breaking ties by index.
+     */
+    static int[] order(long[] weights, int first, int last) {
+        // weights are non-negative, so MAX_VALUE - w is non-negative and
+        // ascending keys mean descending weights
+        int n = last - first;
+        long[] keys = new long[n];
+        int[] order = new int[n];
+        long varying = 0;
+        for (int i = 0; i < n; i++) {
+            keys[i] = Long.MAX_VALUE - weights[first + i];
+            order[i] = first + i;
+            varying |= keys[i] ^ keys[0];
+        }
+
+        long[] keyBuffer = new long[n];
+        int[] orderBuffer = new int[n];
+        int[] count = new int[RADIX + 1];
+        for (int shift = 0; shift < Long.SIZE && (varying >>> shift) != 0; shift += 8) {
+            if (((varying >>> shift) & 0xFF) == 0) {
+                continue;
+            }
+            Arrays.fill(count, 0);
+            for (int i = 0; i < n; i++) {
+                count[(int) ((keys[i] >>> shift) & 0xFF) + 1]++;
+            }
+            for (int d = 0; d < RADIX; d++) {
+                count[d + 1] += count[d];
+            }
+            for (int i = 0; i < n; i++) {
+                int to = count[(int) ((keys[i] >>> shift) & 0xFF)]++;
+                keyBuffer[to] = keys[i];
+                orderBuffer[to] = order[i];
+            }
+            long[] k = keys;
+            keys = keyBuffer;
+            keyBuffer = k;
+            int[] o = order;
+            order = orderBuffer;
+            orderBuffer = o;
+        }
+
+        return order;
+    }
+
+}
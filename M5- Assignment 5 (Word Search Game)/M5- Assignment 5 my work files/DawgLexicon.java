@@ -0,0 +1,265 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lexicon stored as a minimal directed acyclic word graph: a trie in which
+ * all equal subtrees are merged, so common suffixes such as -ING or -NESS
+ * are stored once. It is built with Daciuk's incremental algorithm over the
+ * sorted words, which keeps only the path of the last word unminimized, and
+ * then frozen into flat arrays: the edges leaving node v are
+ * edges[firstEdge[v] .. firstEdge[v + 1]), sorted by label. It answers the
+ * same questions as TrieLexicon in a fraction of the space. A game uses it
+ * through searchGame(Lexicon), for example
+ *    new searchGame(new DawgLexicon(LexiconFiles.readWords(path)))
+ */
+public class DawgLexicon implements Lexicon {
+
+   private final int[] firstEdge;
+   private final boolean[] word;
+   private final char[] labels;
+   private final int[] targets;
+   private final int size;
+
+   /**
+    * Builds the graph of the given words. Duplicates are ignored. This
+    * method throws an IllegalArgumentException if words or any word is
+    * null.
+    */
+   public DawgLexicon(Collection<String> words) {
+      if (words == null) {
+         throw new IllegalArgumentException();
+      }
+      String[] sorted = words.toArray(new String[0]);
+      for (String w : sorted) {
+         if (w == null) {
+            throw new IllegalArgumentException();
+         }
+      }
+      Arrays.sort(sorted);
+   
+      Map<State, State> register = new HashMap<State, State>();
+      State root = new State(0);
+      int[] ids = {1};
+      int count = 0;
+      String previous = null;
+      for (String w : sorted) {
+         if (w.equals(previous)) {
+            continue;
+         }
+         // follow the longest prefix already in the graph; it lies on the
+         // path of the previous word, the only unregistered path
+         State last = root;
+         int i = 0;
+         while (i < w.length() && last.lastLabel() == w.charAt(i)) {
+            last = last.lastTarget();
+            i++;
+         }
+         if (last.hasChildren()) {
+            replaceOrRegister(last, register);
+         }
+         for (; i < w.length(); i++) {
+            State next = new State(ids[0]++);
+            last.add(w.charAt(i), next);
+            last = next;
+         }
+         last.word = true;
+         count++;
+         previous = w;
+      }
+      if (root.hasChildren()) {
+         replaceOrRegister(root, register);
+      }
+   
+      // number the states depth-first from the root
+      Map<State, Integer> number = new IdentityHashMap<State, Integer>();
+      List<State> order = new ArrayList<State>();
+      List<State> stack = new ArrayList<State>();
+      stack.add(root);
+      number.put(root, 0);
+      order.add(root);
+      int edges = 0;
+      while (!stack.isEmpty()) {
+         State s = stack.remove(stack.size() - 1);
+         edges += s.labels.length();
+         for (State t : s.targets) {
+            if (!number.containsKey(t)) {
+               number.put(t, order.size());
+               order.add(t);
+               stack.add(t);
+            }
+         }
+      }
+   
+      firstEdge = new int[order.size() + 1];
+      word = new boolean[order.size()];
+      labels = new char[edges];
+      targets = new int[edges];
+      int e = 0;
+      for (int v = 0; v < order.size(); v++) {
+         State s = order.get(v);
+         firstEdge[v] = e;
+         word[v] = s.word;
+         for (int k = 0; k < s.targets.size(); k++) {
+            labels[e] = s.labels.charAt(k);
+            targets[e++] = number.get(s.targets.get(k));
+         }
+      }
+      firstEdge[order.size()] = e;
+      size = count;
+   }
+
+   /**
+    * Adopts the arrays of a graph saved by LexiconFiles. The arrays are not
+    * copied and must describe a valid graph.
+    */
+   DawgLexicon(int[] firstEdge, boolean[] word, char[] labels, int[] targets, int size) {
+      this.firstEdge = firstEdge;
+      this.word = word;
+      this.labels = labels;
+      this.targets = targets;
+      this.size = size;
+   }
+
+   @Override
+   public int root() {
+      return 0;
+   }
+
+   @Override
+   public int step(int node, char c) {
+      int lo = firstEdge[node];
+      int hi = firstEdge[node + 1] - 1;
+      while (lo <= hi) {
+         int middle = (lo + hi) >>> 1;
+         if (labels[middle] < c) {
+            lo = middle + 1;
+         }
+         else if (labels[middle] > c) {
+            hi = middle - 1;
+         }
+         else {
+            return targets[middle];
+         }
+      }
+      return -1;
+   }
+
+   @Override
+   public boolean isWord(int node) {
+      return word[node];
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   /** Returns the number of nodes. */
+   int nodeCount() {
+      return word.length;
+   }
+
+   /** Returns the first-edge array, shared. */
+   int[] firstEdge() {
+      return firstEdge;
+   }
+
+   /** Returns the word-flag array, shared. */
+   boolean[] words() {
+      return word;
+   }
+
+   /** Returns the edge label array, shared. */
+   char[] labels() {
+      return labels;
+   }
+
+   /** Returns the edge target array, shared. */
+   int[] targets() {
+      return targets;
+   }
+
+   /**
+    * Minimizes the subtree under the last child of state: every state in
+    * it is replaced by an equal registered state if there is one, and is
+    * registered otherwise.
+    */
+   private static void replaceOrRegister(State state, Map<State, State> register) {
+      State child = state.lastTarget();
+      if (child.hasChildren()) {
+         replaceOrRegister(child, register);
+      }
+      State same = register.get(child);
+      if (same != null) {
+         state.targets.set(state.targets.size() - 1, same);
+      }
+      else {
+         register.put(child, child);
+      }
+   }
+
+   /**
+    * A state while the graph is built. Two states are equal when they agree
+    * on being a word and have the same labelled edges to the same targets.
+    * Targets compare by id, which is right because a state is only compared
+    * once its targets are registered, and hence unique.
+    */
+   private static class State {
+      final int id;
+      final StringBuilder labels = new StringBuilder(2);
+      final List<State> targets = new ArrayList<State>(2);
+      boolean word;
+   
+      State(int id) {
+         this.id = id;
+      }
+   
+      boolean hasChildren() {
+         return !targets.isEmpty();
+      }
+   
+      int lastLabel() {
+         return labels.length() == 0 ? -1 : labels.charAt(labels.length() - 1);
+      }
+   
+      State lastTarget() {
+         return targets.get(targets.size() - 1);
+      }
+   
+      void add(char label, State target) {
+         labels.append(label);
+         targets.add(target);
+      }
+   
+      @Override
+      public boolean equals(Object other) {
+         if (!(other instanceof State)) {
+            return false;
+         }
+         State o = (State) other;
+         if (word != o.word || targets.size() != o.targets.size()) {
+            return false;
+         }
+         for (int k = 0; k < targets.size(); k++) {
+            if (labels.charAt(k) != o.labels.charAt(k) || targets.get(k).id != o.targets.get(k).id) {
+               return false;
+            }
+         }
+         return true;
+      }
+   
+      @Override
+      public int hashCode() {
+         int h = word ? 1 : 0;
+         for (int k = 0; k < targets.size(); k++) {
+            h = 31 * (31 * h + labels.charAt(k)) + targets.get(k).id;
+         }
+         return h;
+      }
+   }
+}
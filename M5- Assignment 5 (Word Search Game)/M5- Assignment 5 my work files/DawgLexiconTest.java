@@ -0,0 +1,82 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * DawgLexiconTest.java
+ * JUnit tests for the DawgLexicon class, checked against TrieLexicon.
+ */
+public class DawgLexiconTest {
+
+   private static final List<String> WORDS = Arrays.asList(
+      "WALK", "WALKED", "WALKING", "WALKS", "TALK", "TALKED", "TALKING", "TALKS",
+      "TALKATIVE", "TAP", "TOP", "TOPS", "TAPS", "STOP", "STOPS", "S", "WALK");
+
+   /** Test case for every prefix of every word, and one letter past it. */
+   @Test
+   public void testAgreesWithTrie() {
+      TrieLexicon trie = new TrieLexicon(WORDS);
+      DawgLexicon dawg = new DawgLexicon(WORDS);
+      List<String> probes = new ArrayList<String>(Arrays.asList("", "X", "WALKINGS", "STO"));
+      for (String word : WORDS) {
+         for (int i = 0; i <= word.length(); i++) {
+            probes.add(word.substring(0, i));
+            probes.add(word.substring(0, i) + "S");
+            probes.add(word.substring(0, i) + "E");
+         }
+      }
+      for (String probe : probes) {
+         assertEquals("\ncontains(" + probe + ")\n", trie.contains(probe), dawg.contains(probe));
+         assertEquals("\nhasPrefix(" + probe + ")\n", trie.hasPrefix(probe),
+            dawg.hasPrefix(probe));
+      }
+      assertEquals("\nsize\n", trie.size(), dawg.size());
+   }
+
+   /** Test case for shared prefixes and suffixes stored once. */
+   @Test
+   public void testMinimal() {
+      // the root, T, then {A, O} both leading to P, then the end of P
+      DawgLexicon dawg = new DawgLexicon(Arrays.asList("TAP", "TOP"));
+      assertEquals("\nnodeCount of TAP, TOP\n", 4, dawg.nodeCount());
+      assertEquals("\nstep(TA) and step(TO)\n", dawg.walk(dawg.root(), "TA"),
+         dawg.walk(dawg.root(), "TO"));
+      assertTrue("\nfewer nodes than the trie\n",
+         new DawgLexicon(WORDS).nodeCount() < new TrieLexicon(WORDS).nodeCount());
+   }
+
+   /** Test case for lexicons with no words and with only the empty word. */
+   @Test
+   public void testEmptyLexicons() {
+      DawgLexicon empty = new DawgLexicon(Collections.<String>emptyList());
+      assertEquals("\nsize of no words\n", 0, empty.size());
+      assertEquals("\nnodeCount of no words\n", 1, empty.nodeCount());
+      assertFalse("\nno words contains()\n", empty.contains(""));
+      assertFalse("\nno words hasPrefix()\n", empty.hasPrefix(""));
+      DawgLexicon blank = new DawgLexicon(Arrays.asList(""));
+      assertEquals("\nsize of the empty word\n", 1, blank.size());
+      assertTrue("\nempty word contains()\n", blank.contains(""));
+      assertFalse("\nempty word hasPrefix(A)\n", blank.hasPrefix("A"));
+   }
+
+   /** Test case for a game played with a DAWG. */
+   @Test
+   public void testGameWithDawg() {
+      WordSearchGame.searchGame game = new WordSearchGame.searchGame(new DawgLexicon(WORDS));
+      game.setBoard(new String[] {"T", "A", "O", "P"});
+      assertEquals("\ngetAllScorableWords(3)\n", "[TAP, TOP]",
+         game.getAllScorableWords(3).toString());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testNullWord() {
+      new DawgLexicon(Arrays.asList("A", null));
+   }
+}
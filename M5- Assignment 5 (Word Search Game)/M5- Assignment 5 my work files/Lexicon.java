@@ -0,0 +1,55 @@
+/**
+ * A set of words that can be walked one character at a time. Nodes are
+ * plain ints, so a search can carry its position in the lexicon as it
+ * extends a word and test each extension with a single step instead of
+ * looking the whole word up again.
+ */
+public interface Lexicon {
+
+   /**
+    * Returns the node of the empty string.
+    */
+   int root();
+
+   /**
+    * Returns the node reached from node by the character c, or -1 if no
+    * word in the lexicon continues that way.
+    */
+   int step(int node, char c);
+
+   /**
+    * Returns true if the string that leads to node is a word.
+    */
+   boolean isWord(int node);
+
+   /**
+    * Returns the number of words in the lexicon.
+    */
+   int size();
+
+   /**
+    * Returns the node reached from node by the characters of s, or -1 if
+    * no word continues that way.
+    */
+   default int walk(int node, CharSequence s) {
+      for (int i = 0; i < s.length() && node >= 0; i++) {
+         node = step(node, s.charAt(i));
+      }
+      return node;
+   }
+
+   /**
+    * Returns true if word is in the lexicon.
+    */
+   default boolean contains(String word) {
+      int node = walk(root(), word);
+      return node >= 0 && isWord(node);
+   }
+
+   /**
+    * Returns true if at least one word in the lexicon starts with prefix.
+    */
+   default boolean hasPrefix(String prefix) {
+      return size() > 0 && walk(root(), prefix) >= 0;
+   }
+}
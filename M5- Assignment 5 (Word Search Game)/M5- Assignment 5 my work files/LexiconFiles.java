@@ -0,0 +1,316 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads word lists and reads and writes binary lexicon snapshots.
+ *
+ * A word list is read by memory-mapping the file and scanning its bytes:
+ * the first whitespace-separated token of every line is a word, and the
+ * rest of the line is ignored, as with Scanner.next and nextLine. ASCII
+ * letters are upper-cased in place; only tokens with other characters are
+ * decoded as UTF-8 and upper-cased as Strings.
+ *
+ * A snapshot holds the arrays of a built lexicon, so loading one skips
+ * parsing, sorting, and building. Layout (big-endian): magic, version,
+ * kind, word count, and node count as ints, then the arrays of that kind,
+ * then the CRC-32 of everything before it as a long. A trie stores labels,
+ * first children, child counts, and word flags per node; a DAWG stores its
+ * edge count, first edges (one more than nodes), and word flags, then edge
+ * labels and targets.
+ */
+public class LexiconFiles {
+
+   private static final int MAGIC = 0x57534C58; // "WSLX"
+   private static final int VERSION = 1;
+   private static final int HEADER_BYTES = 20;
+   private static final int TRIE = 1;
+   private static final int DAWG = 2;
+
+   /**
+    * Returns the words of a word list, upper-cased, in file order.
+    * @throws IOException if the file cannot be read
+    */
+   public static List<String> readWords(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("word list too large: " + file);
+         }
+         MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+         List<String> words = new ArrayList<String>();
+         byte[] token = new byte[64];
+         int n = map.limit();
+         int i = 0;
+         while (i < n) {
+            while (i < n && isSpace(map.get(i))) {
+               i++;
+            }
+            if (i == n) {
+               break;
+            }
+            int length = 0;
+            boolean ascii = true;
+            while (i < n && !isSpace(map.get(i))) {
+               byte b = map.get(i++);
+               if (b < 0) {
+                  ascii = false;
+               }
+               else if (b >= 'a' && b <= 'z') {
+                  b -= 'a' - 'A';
+               }
+               if (length == token.length) {
+                  token = Arrays.copyOf(token, 2 * length);
+               }
+               token[length++] = b;
+            }
+            words.add(ascii ? new String(token, 0, length, StandardCharsets.US_ASCII)
+               : new String(token, 0, length, StandardCharsets.UTF_8).toUpperCase());
+            while (i < n && map.get(i) != '\n' && map.get(i) != '\r') {
+               i++;
+            }
+         }
+         return words;
+      }
+   }
+
+   /**
+    * Returns true if file starts like a lexicon snapshot.
+    * @throws IOException if the file cannot be read
+    */
+   public static boolean isSnapshot(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         ByteBuffer magic = ByteBuffer.allocate(4);
+         while (magic.hasRemaining() && channel.read(magic) >= 0) {
+            continue;
+         }
+         return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+      }
+   }
+
+   /**
+    * Writes lexicon to file as a snapshot.
+    * @throws IllegalArgumentException if lexicon is of a kind that has no
+    *    snapshot form
+    * @throws IOException if the file cannot be written
+    */
+   public static void save(Lexicon lexicon, Path file) throws IOException {
+      ByteBuffer out;
+      if (lexicon instanceof TrieLexicon) {
+         TrieLexicon trie = (TrieLexicon) lexicon;
+         int nodes = trie.nodeCount();
+         out = ByteBuffer.allocate(HEADER_BYTES + 11 * nodes + 8);
+         out.putInt(MAGIC).putInt(VERSION).putInt(TRIE).putInt(trie.size()).putInt(nodes);
+         put(out, trie.labels());
+         put(out, trie.firstChild());
+         put(out, trie.childCount());
+         put(out, trie.words());
+      }
+      else if (lexicon instanceof DawgLexicon) {
+         DawgLexicon dawg = (DawgLexicon) lexicon;
+         int nodes = dawg.nodeCount();
+         int edges = dawg.labels().length;
+         out = ByteBuffer.allocate(HEADER_BYTES + 4 + 4 * (nodes + 1) + nodes + 6 * edges + 8);
+         out.putInt(MAGIC).putInt(VERSION).putInt(DAWG).putInt(dawg.size()).putInt(nodes);
+         out.putInt(edges);
+         put(out, dawg.firstEdge());
+         put(out, dawg.words());
+         put(out, dawg.labels());
+         put(out, dawg.targets());
+      }
+      else {
+         throw new IllegalArgumentException("cannot save " + lexicon);
+      }
+      out.putLong(crc(out, 0, out.position()));
+      out.flip();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+         while (out.hasRemaining()) {
+            channel.write(out);
+         }
+      }
+   }
+
+   /**
+    * Returns the lexicon saved in a snapshot. The checksum and the shape
+    * of the node arrays are checked, so a damaged file is rejected.
+    * @throws IOException if the file cannot be read or is not a valid
+    *    snapshot
+    */
+   public static Lexicon load(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         long fileSize = channel.size();
+         if (fileSize < HEADER_BYTES + 8 || fileSize > Integer.MAX_VALUE) {
+            throw new IOException("not a lexicon snapshot: " + file);
+         }
+         MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+         if (map.getInt(0) != MAGIC) {
+            throw new IOException("not a lexicon snapshot: " + file);
+         }
+         int kind = map.getInt(8);
+         if (map.getInt(4) != VERSION || (kind != TRIE && kind != DAWG)) {
+            throw new IOException("unsupported lexicon snapshot: " + file);
+         }
+         int size = map.getInt(12);
+         int nodes = map.getInt(16);
+         int edges = kind == DAWG ? map.getInt(HEADER_BYTES) : 0;
+         long expected = kind == TRIE ? HEADER_BYTES + 11L * nodes + 8
+            : HEADER_BYTES + 4 + 4L * (nodes + 1) + nodes + 6L * edges + 8;
+         if (size < 0 || nodes < 1 || edges < 0 || expected != fileSize) {
+            throw new IOException("damaged lexicon snapshot: " + file);
+         }
+         int end = (int) fileSize - 8;
+         if (map.getLong(end) != crc(map, 0, end)) {
+            throw new IOException("checksum mismatch in lexicon snapshot: " + file);
+         }
+         map.position(kind == DAWG ? HEADER_BYTES + 4 : HEADER_BYTES);
+         Lexicon lexicon = kind == TRIE ? loadTrie(map, nodes, size) : loadDawg(map, nodes, edges, size);
+         if (lexicon == null) {
+            throw new IOException("damaged lexicon snapshot: " + file);
+         }
+         return lexicon;
+      }
+   }
+
+   /**
+    * Reads the arrays of a trie of the given shape from map, starting at
+    * its position, or returns null if they do not describe a valid trie:
+    * every node's children must lie inside the arrays, and their labels
+    * must ascend, since TrieLexicon.step binary-searches them.
+    */
+   private static TrieLexicon loadTrie(ByteBuffer map, int nodes, int size) {
+      char[] labels = new char[nodes];
+      int[] firstChild = new int[nodes];
+      int[] childCount = new int[nodes];
+      boolean[] words = new boolean[nodes];
+      get(map, labels);
+      get(map, firstChild);
+      get(map, childCount);
+      int count = get(map, words);
+      for (int i = 0; i < nodes; i++) {
+         if (firstChild[i] < 1 || childCount[i] < 0
+            || (long) firstChild[i] + childCount[i] > nodes) {
+            return null;
+         }
+         for (int c = firstChild[i] + 1; c < firstChild[i] + childCount[i]; c++) {
+            if (labels[c - 1] >= labels[c]) {
+               return null;
+            }
+         }
+      }
+      return count == size ? new TrieLexicon(labels, firstChild, childCount, words, size) : null;
+   }
+
+   /**
+    * Reads the arrays of a DAWG of the given shape from map, starting at
+    * its position, or returns null if they do not describe a valid graph:
+    * every node's labels must ascend, every edge must lead to a node other
+    * than the root, and the graph must have no cycle.
+    */
+   private static DawgLexicon loadDawg(ByteBuffer map, int nodes, int edges, int size) {
+      int[] firstEdge = new int[nodes + 1];
+      boolean[] words = new boolean[nodes];
+      char[] labels = new char[edges];
+      int[] targets = new int[edges];
+      get(map, firstEdge);
+      get(map, words);
+      get(map, labels);
+      get(map, targets);
+      if (firstEdge[0] != 0 || firstEdge[nodes] != edges) {
+         return null;
+      }
+      int[] incoming = new int[nodes];
+      for (int v = 0; v < nodes; v++) {
+         if (firstEdge[v] > firstEdge[v + 1]) {
+            return null;
+         }
+         for (int e = firstEdge[v]; e < firstEdge[v + 1]; e++) {
+            if (targets[e] <= 0 || targets[e] >= nodes
+               || (e > firstEdge[v] && labels[e - 1] >= labels[e])) {
+               return null;
+            }
+            incoming[targets[e]]++;
+         }
+      }
+      // remove nodes without incoming edges until none are left; a cycle
+      // keeps its nodes from ever getting there
+      int[] ready = new int[nodes];
+      int tail = 0;
+      for (int v = 0; v < nodes; v++) {
+         if (incoming[v] == 0) {
+            ready[tail++] = v;
+         }
+      }
+      for (int head = 0; head < tail; head++) {
+         int v = ready[head];
+         for (int e = firstEdge[v]; e < firstEdge[v + 1]; e++) {
+            if (--incoming[targets[e]] == 0) {
+               ready[tail++] = targets[e];
+            }
+         }
+      }
+      if (tail != nodes) {
+         return null;
+      }
+      return new DawgLexicon(firstEdge, words, labels, targets, size);
+   }
+
+   private static void put(ByteBuffer out, char[] values) {
+      out.asCharBuffer().put(values);
+      out.position(out.position() + 2 * values.length);
+   }
+
+   private static void put(ByteBuffer out, int[] values) {
+      out.asIntBuffer().put(values);
+      out.position(out.position() + 4 * values.length);
+   }
+
+   private static void put(ByteBuffer out, boolean[] values) {
+      for (boolean v : values) {
+         out.put((byte) (v ? 1 : 0));
+      }
+   }
+
+   private static void get(ByteBuffer in, char[] values) {
+      in.asCharBuffer().get(values);
+      in.position(in.position() + 2 * values.length);
+   }
+
+   private static void get(ByteBuffer in, int[] values) {
+      in.asIntBuffer().get(values);
+      in.position(in.position() + 4 * values.length);
+   }
+
+   /**
+    * Reads flags written by put and returns how many are set.
+    */
+   private static int get(ByteBuffer in, boolean[] values) {
+      int set = 0;
+      for (int i = 0; i < values.length; i++) {
+         values[i] = in.get() != 0;
+         if (values[i]) {
+            set++;
+         }
+      }
+      return set;
+   }
+
+   private static boolean isSpace(byte b) {
+      return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+   }
+
+   private static long crc(ByteBuffer buffer, int from, int to) {
+      ByteBuffer view = buffer.duplicate();
+      view.limit(to).position(from);
+      CRC32 crc = new CRC32();
+      crc.update(view);
+      return crc.getValue();
+   }
+}
@@ -0,0 +1,180 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * LexiconFilesTest.java
+ * JUnit tests for reading word lists and for writing and reading lexicon
+ * snapshots with the LexiconFiles class.
+ */
+public class LexiconFilesTest {
+
+   private static final List<String> WORDS = Arrays.asList(
+      "BAKE", "BAKED", "BAKES", "BAKING", "CAKE", "CAKED", "CAKES", "CAKING", "MAKE",
+      "MAKES", "MAKING", "\u00c9T\u00c9");
+
+   private Path file;
+
+   @Before
+   public void setup() throws IOException {
+      file = Files.createTempFile("lexicon", ".bin");
+   }
+
+   @After
+   public void teardown() throws IOException {
+      Files.deleteIfExists(file);
+   }
+
+   /** Test case for the first token of every line, upper-cased. */
+   @Test
+   public void testReadWords() throws IOException {
+      String longWord = "pneumonoultramicroscopicsilicovolcanoconiosis"
+         + "pneumonoultramicroscopicsilicovolcanoconiosis";
+      write("  apple pie\r\nBanana\n\n\tcherry  tart\n\u00e9t\u00e9 x\n" + longWord);
+      String expected = "[APPLE, BANANA, CHERRY, \u00c9T\u00c9, " + longWord.toUpperCase() + "]";
+      String actual = LexiconFiles.readWords(file).toString();
+      assertEquals("\nreadWords\n", expected, actual);
+      assertFalse("\nisSnapshot of a word list\n", LexiconFiles.isSnapshot(file));
+   }
+
+   /** Test case for saving and loading a trie. */
+   @Test
+   public void testTrieRoundTrip() throws IOException {
+      assertRoundTrip(new TrieLexicon(WORDS));
+   }
+
+   /** Test case for saving and loading a DAWG. */
+   @Test
+   public void testDawgRoundTrip() throws IOException {
+      assertRoundTrip(new DawgLexicon(WORDS));
+   }
+
+   /** Test case for a snapshot loaded by a game. */
+   @Test
+   public void testGameLoadsSnapshot() throws IOException {
+      LexiconFiles.save(new TrieLexicon(Arrays.asList("LEAP", "PEACE")), file);
+      WordSearchGame game = WordSearchGameFactory.createGame();
+      game.loadLexicon(file.toString());
+      assertEquals("\ngetAllScorableWords(4)\n", "[LEAP, PEACE]",
+         game.getAllScorableWords(4).toString());
+   }
+
+   /** Test case for a single changed byte anywhere in a snapshot. */
+   @Test
+   public void testRejectsChangedByte() throws IOException {
+      for (Lexicon lexicon : new Lexicon[] {new TrieLexicon(WORDS), new DawgLexicon(WORDS)}) {
+         String kind = lexicon.getClass().getSimpleName();
+         LexiconFiles.save(lexicon, file);
+         byte[] good = Files.readAllBytes(file);
+         for (int at = 0; at < good.length; at++) {
+            byte[] bad = good.clone();
+            bad[at] ^= 0x01;
+            Files.write(file, bad);
+            assertRejected(kind + ", byte " + at + " of " + good.length + " changed");
+         }
+         Files.write(file, Arrays.copyOf(good, good.length - 1));
+         assertRejected(kind + ", last byte cut");
+      }
+   }
+
+   /**
+    * Test case for a trie snapshot whose child labels are out of order but
+    * whose checksum is right.
+    */
+   @Test
+   public void testRejectsUnorderedTrieLabels() throws IOException {
+      // nodes: the root, A, then its children B and C
+      LexiconFiles.save(new TrieLexicon(Arrays.asList("AB", "AC")), file);
+      ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+      assertEquals("\nnode count\n", 4, bytes.getInt(16));
+      bytes.putChar(20 + 2 * 2, 'C').putChar(20 + 2 * 3, 'B');
+      resign(bytes);
+      assertRejected("trie labels C, B");
+   }
+
+   /**
+    * Test case for a DAWG snapshot with a cycle but a right checksum, which
+    * would hold words of any length.
+    */
+   @Test
+   public void testRejectsCyclicDawg() throws IOException {
+      DawgLexicon dawg = new DawgLexicon(Arrays.asList("AB"));
+      LexiconFiles.save(dawg, file);
+      ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+      // point the edge that leaves the last node with any back at that node
+      int nodes = dawg.nodeCount();
+      int edges = dawg.labels().length;
+      int targets = 20 + 4 + 4 * (nodes + 1) + nodes + 2 * edges;
+      int from = 0;
+      while (dawg.firstEdge()[from + 1] < edges) {
+         from++;
+      }
+      bytes.putInt(targets + 4 * (edges - 1), from);
+      resign(bytes);
+      assertRejected("DAWG edge from node " + from + " to itself");
+   }
+
+   /**
+    * Saves lexicon, loads it back, and checks that both hold the same
+    * words and prefixes.
+    */
+   private void assertRoundTrip(Lexicon lexicon) throws IOException {
+      LexiconFiles.save(lexicon, file);
+      assertTrue("\nisSnapshot\n", LexiconFiles.isSnapshot(file));
+      Lexicon loaded = LexiconFiles.load(file);
+      assertEquals("\nclass\n", lexicon.getClass(), loaded.getClass());
+      assertEquals("\nsize\n", lexicon.size(), loaded.size());
+      for (String word : WORDS) {
+         for (int i = 0; i <= word.length() + 1; i++) {
+            String probe = i <= word.length() ? word.substring(0, i) : word + "S";
+            assertEquals("\ncontains(" + probe + ")\n", lexicon.contains(probe),
+               loaded.contains(probe));
+            assertEquals("\nhasPrefix(" + probe + ")\n", lexicon.hasPrefix(probe),
+               loaded.hasPrefix(probe));
+         }
+      }
+   }
+
+   private void assertRejected(String feedback) {
+      try {
+         LexiconFiles.load(file);
+         fail("\nsnapshot loaded despite " + feedback + "\n");
+      }
+      catch (IOException e) {
+         // expected
+      }
+   }
+
+   /**
+    * Replaces the checksum at the end of the snapshot in bytes with one
+    * that matches its contents, and writes it to file.
+    */
+   private void resign(ByteBuffer bytes) throws IOException {
+      int end = bytes.capacity() - 8;
+      CRC32 crc = new CRC32();
+      crc.update(bytes.array(), 0, end);
+      bytes.putLong(end, crc.getValue());
+      Files.write(file, bytes.array());
+   }
+
+   /**
+    * Replaces the contents of file with text in UTF-8.
+    */
+   private void write(String text) throws IOException {
+      Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+   }
+}
@@ -0,0 +1,161 @@
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Lexicon stored as a trie in flat arrays. The children of every node are
+ * numbered consecutively and sorted by their character, so a node is just
+ * the range of its children plus a word flag, and a step is a binary search
+ * over at most a few dozen chars. Every node except the root of an empty
+ * lexicon lies on the path to some word, so a node exists exactly when its
+ * string is a valid prefix.
+ */
+public class TrieLexicon implements Lexicon {
+
+   private final char[] labels;
+   private final int[] firstChild;
+   private final int[] childCount;
+   private final boolean[] word;
+   private final int size;
+
+   /**
+    * Builds a trie of the given words. Duplicates are ignored. This method
+    * throws an IllegalArgumentException if words or any word is null.
+    */
+   public TrieLexicon(Collection<String> words) {
+      if (words == null) {
+         throw new IllegalArgumentException();
+      }
+      String[] sorted = words.toArray(new String[0]);
+      int chars = 0;
+      for (String w : sorted) {
+         if (w == null) {
+            throw new IllegalArgumentException();
+         }
+         chars += w.length();
+      }
+      Arrays.sort(sorted);
+   
+      char[] label = new char[chars + 1];
+      int[] first = new int[chars + 1];
+      int[] children = new int[chars + 1];
+      boolean[] ends = new boolean[chars + 1];
+   
+      // breadth-first, so that the children of each node get consecutive
+      // numbers; each pending node is (node, lo, hi, depth) over sorted
+      int[] pending = new int[4 * (chars + 1)];
+      int head = 0;
+      int tail = 0;
+      int nodes = 1;
+      int count = 0;
+      pending[tail++] = 0;
+      pending[tail++] = 0;
+      pending[tail++] = sorted.length;
+      pending[tail++] = 0;
+      while (head < tail) {
+         int node = pending[head++];
+         int lo = pending[head++];
+         int hi = pending[head++];
+         int depth = pending[head++];
+         // the shortest word, if it ends here, comes first; skip duplicates
+         while (lo < hi && sorted[lo].length() == depth) {
+            if (!ends[node]) {
+               ends[node] = true;
+               count++;
+            }
+            lo++;
+         }
+         first[node] = nodes;
+         while (lo < hi) {
+            char c = sorted[lo].charAt(depth);
+            int end = lo + 1;
+            while (end < hi && sorted[end].charAt(depth) == c) {
+               end++;
+            }
+            label[nodes] = c;
+            pending[tail++] = nodes;
+            pending[tail++] = lo;
+            pending[tail++] = end;
+            pending[tail++] = depth + 1;
+            nodes++;
+            lo = end;
+         }
+         children[node] = nodes - first[node];
+      }
+      labels = Arrays.copyOf(label, nodes);
+      firstChild = Arrays.copyOf(first, nodes);
+      childCount = Arrays.copyOf(children, nodes);
+      word = Arrays.copyOf(ends, nodes);
+      size = count;
+   }
+
+   /**
+    * Adopts the arrays of a trie saved by LexiconFiles. The arrays are not
+    * copied and must describe a valid trie.
+    */
+   TrieLexicon(char[] labels, int[] firstChild, int[] childCount, boolean[] word, int size) {
+      this.labels = labels;
+      this.firstChild = firstChild;
+      this.childCount = childCount;
+      this.word = word;
+      this.size = size;
+   }
+
+   @Override
+   public int root() {
+      return 0;
+   }
+
+   @Override
+   public int step(int node, char c) {
+      int lo = firstChild[node];
+      int hi = lo + childCount[node] - 1;
+      while (lo <= hi) {
+         int middle = (lo + hi) >>> 1;
+         if (labels[middle] < c) {
+            lo = middle + 1;
+         }
+         else if (labels[middle] > c) {
+            hi = middle - 1;
+         }
+         else {
+            return middle;
+         }
+      }
+      return -1;
+   }
+
+   @Override
+   public boolean isWord(int node) {
+      return word[node];
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   /** Returns the number of nodes. */
+   int nodeCount() {
+      return word.length;
+   }
+
+   /** Returns the label array, shared. */
+   char[] labels() {
+      return labels;
+   }
+
+   /** Returns the first-child array, shared. */
+   int[] firstChild() {
+      return firstChild;
+   }
+
+   /** Returns the child-count array, shared. */
+   int[] childCount() {
+      return childCount;
+   }
+
+   /** Returns the word-flag array, shared. */
+   boolean[] words() {
+      return word;
+   }
+}
@@ -0,0 +1,78 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * TrieLexiconTest.java
+ * JUnit tests for the TrieLexicon class, checked against a TreeSet of the
+ * same words.
+ */
+public class TrieLexiconTest {
+
+   private static final List<String> WORDS = Arrays.asList(
+      "TEN", "TEA", "TO", "TOE", "TEN", "INN", "IN", "I", "TEAM", "A",
+      "\u00c9T\u00c9", "\u00c9TAT", "ZZ", "TEAMS");
+
+   /** Test case for every prefix of every word, and a few non-prefixes. */
+   @Test
+   public void testAgreesWithTreeSet() {
+      TreeSet<String> expected = new TreeSet<String>(WORDS);
+      TrieLexicon lexicon = new TrieLexicon(WORDS);
+      List<String> probes = new ArrayList<String>(Arrays.asList(
+         "", "B", "TEX", "TEAMSS", "Z", "ZZZ", "\u00c9", "\u00c9TA", "\u00c9TB", "ten"));
+      for (String word : WORDS) {
+         for (int i = 0; i <= word.length(); i++) {
+            probes.add(word.substring(0, i));
+         }
+      }
+      for (String probe : probes) {
+         String ceiling = expected.ceiling(probe);
+         assertEquals("\ncontains(" + probe + ")\n", expected.contains(probe),
+            lexicon.contains(probe));
+         assertEquals("\nhasPrefix(" + probe + ")\n",
+            ceiling != null && ceiling.startsWith(probe), lexicon.hasPrefix(probe));
+      }
+      assertEquals("\nsize\n", expected.size(), lexicon.size());
+   }
+
+   /** Test case for walking a word one character at a time. */
+   @Test
+   public void testStep() {
+      TrieLexicon lexicon = new TrieLexicon(WORDS);
+      int t = lexicon.step(lexicon.root(), 'T');
+      int te = lexicon.step(t, 'E');
+      int tea = lexicon.step(te, 'A');
+      assertTrue("\nstep to TEA\n", t >= 0 && te >= 0 && tea >= 0);
+      assertFalse("\nisWord(TE)\n", lexicon.isWord(te));
+      assertTrue("\nisWord(TEA)\n", lexicon.isWord(tea));
+      assertEquals("\nstep(TE, X)\n", -1, lexicon.step(te, 'X'));
+      assertEquals("\nwalk(TEA, MS)\n", lexicon.walk(lexicon.root(), "TEAMS"),
+         lexicon.walk(tea, "MS"));
+   }
+
+   /** Test case for lexicons with no words and with only the empty word. */
+   @Test
+   public void testEmptyLexicons() {
+      TrieLexicon empty = new TrieLexicon(Collections.<String>emptyList());
+      assertEquals("\nsize of no words\n", 0, empty.size());
+      assertFalse("\nno words contains()\n", empty.contains(""));
+      assertFalse("\nno words hasPrefix()\n", empty.hasPrefix(""));
+      TrieLexicon blank = new TrieLexicon(Arrays.asList("", ""));
+      assertEquals("\nsize of the empty word\n", 1, blank.size());
+      assertTrue("\nempty word contains()\n", blank.contains(""));
+      assertFalse("\nempty word contains(A)\n", blank.contains("A"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testNullWord() {
+      new TrieLexicon(Arrays.asList("A", null));
+   }
+}
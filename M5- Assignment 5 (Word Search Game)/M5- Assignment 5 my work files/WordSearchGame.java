@@ -1,20 +1,25 @@
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
 import java.lang.Math;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.HashSet;
 
 import java.util.Iterator;
-import java.util.Scanner;
 
 import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Defines the methods needed to play a word search game.
@@ -119,66 +124,93 @@ public interface WordSearchGame {
    
     public class searchGame implements WordSearchGame {
    //Fields
-   private TreeSet<String> lexicon;
-   private String[][] board;
+   private Lexicon lexicon;
+   private Board board;
    private static final int MAX_CHARACTERS = 8;
+   private static final int TASKS_PER_THREAD = 4;
    private int breadth;
    private int height;
-   private boolean[][] searched;
-   private ArrayList<Integer> track1;
-   private String partOfWord;
-   private SortedSet<String> boardWords;
-   private ArrayList<Position> track2;
+   private Search search;
    
    /** Constructor. **/
    public searchGame() {
       lexicon = null;
       
       //Default board 
-      board = new String[4][4];
-      board[0][0] = "E"; 
-      board[0][1] = "E"; 
-      board[0][2] = "C"; 
-      board[0][3] = "A"; 
-      board[1][0] = "A"; 
-      board[1][1] = "L"; 
-      board[1][2] = "E"; 
-      board[1][3] = "P"; 
-      board[2][0] = "H"; 
-      board[2][1] = "N"; 
-      board[2][2] = "B"; 
-      board[2][3] = "O"; 
-      board[3][0] = "Q"; 
-      board[3][1] = "T"; 
-      board[3][2] = "T"; 
-      board[3][3] = "Y";  
-        
-      breadth = board.length;
-      height = board[0].length;
+      useBoard(new String[] {
+         "E", "E", "C", "A",
+         "A", "L", "E", "P",
+         "H", "N", "B", "O",
+         "Q", "T", "T", "Y"}, 4);
+   }
+   
+   /**
+    * Constructor for a game that uses an already loaded lexicon. Lexicons
+    * are immutable, so any number of games, on any threads, can share one.
+    * @param lexicon the lexicon to use
+    * @throws IllegalArgumentException if lexicon is null
+    */
+   public searchGame(Lexicon lexicon) {
+      this();
+      if (lexicon == null) {
+         throw new IllegalArgumentException();
+      }
+      this.lexicon = lexicon;
+   }
+   
+   /**
+    * Returns the lexicon of this game, for sharing with other games.
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public Lexicon getLexicon() {
+      if (lexicon == null) {
+         throw new IllegalStateException();
+      }
+      return lexicon;
    }
    // Overriding loadLexicon method
         public void loadLexicon(String fileName) {
    
-      lexicon = new TreeSet<String>(); 
-   
       if (fileName == null) {
          throw new IllegalArgumentException();
       }
       
       try {
-         Scanner scan = new Scanner(new BufferedReader(new FileReader(new File(fileName))));
-         while (scan.hasNext()) {
-            String letter = scan.next();
-            letter = letter.toUpperCase();
-            lexicon.add(letter);
-            scan.nextLine();
+         Path file = Paths.get(fileName);
+         if (LexiconFiles.isSnapshot(file)) {
+            lexicon = LexiconFiles.load(file);
+         }
+         else {
+            lexicon = new TrieLexicon(LexiconFiles.readWords(file));
          }
       }
       
-      catch (java.io.FileNotFoundException e) {
-         throw new IllegalArgumentException();
+      catch (IOException e) {
+         throw new IllegalArgumentException(e);
       } 
    }
+   
+   /**
+    * Saves the loaded lexicon as a binary snapshot, which loadLexicon
+    * recognizes and loads without parsing or building anything.
+    * @param fileName the name of the snapshot file to write
+    * @throws IllegalArgumentException if fileName is null or cannot be
+    *    written.
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public void saveLexicon(String fileName) {
+      if (fileName == null) {
+         throw new IllegalArgumentException();
+      }
+      
+      try {
+         LexiconFiles.save(getLexicon(), Paths.get(fileName));
+      }
+      
+      catch (IOException e) {
+         throw new IllegalArgumentException(e);
+      }
+   }
     // Overriding setBoard method
         public void setBoard(String[] letterArray) {
     
@@ -191,16 +223,13 @@ public interface WordSearchGame {
          throw new IllegalArgumentException();
       }
       
-      board = new String[a][a];
-      breadth = a;
-      height = a;
-      int i = 0;
-      for (int p = 0; p < height; p++) {
-         for (int q = 0; q < breadth; q++) {
-            board[p][q] = letterArray[i];
-            i++;
+      for (String letters : letterArray) {
+         if (letters == null) {
+            throw new IllegalArgumentException();
          }
       }
+      
+      useBoard(letterArray.clone(), a);
    }
      // Overriding getBoard method
         public String getBoard() {
@@ -211,7 +240,7 @@ public interface WordSearchGame {
          stringOnBoard += "\n";
          
          for (int q = 0; q < breadth; q++) {
-            stringOnBoard += board[p][q] + " ";
+            stringOnBoard += board.cells[p * breadth + q] + " ";
          }
       }
       
@@ -228,29 +257,72 @@ public interface WordSearchGame {
          throw new IllegalStateException();
       }
       
-      track2 = new ArrayList<Position>();
-      boardWords = new TreeSet<String>();
-      partOfWord = "";
-      
-      for (int p = 0; p < height; p++) {
+      // Aim for TASKS_PER_THREAD tasks per pool thread, so that threads
+      // that draw cheap cells can steal from those that draw dear ones.
+      int cells = board.cells.length;
+      int parallelism = ForkJoinPool.getCommonPoolParallelism();
+      if (parallelism == 1 || cells == 1) {
+         return solve(0, cells, minimumWordLength);
+      }
+      int grain = Math.max(1, cells / (TASKS_PER_THREAD * parallelism));
+      return ForkJoinPool.commonPool().invoke(new Solve(0, cells, minimumWordLength, grain));
+   }
+   
+   /**
+    * Finds all scorable words on each of the given boards, solving the
+    * boards concurrently on the common fork-join pool. Every board is
+    * solved by its own game sharing this game's lexicon, so this game's
+    * board is not used or changed.
+    * @param boards the boards, each as setBoard takes it
+    * @param minimumWordLength the minimum word length
+    * @return the words of every board, in order, and the throughput
+    * @throws IllegalArgumentException if boards or any board is null or a
+    *    board is not square, or if minimumWordLength < 1
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public SolveResult solveAll(List<String[]> boards, int minimumWordLength) {
+      return solveAll(boards, minimumWordLength, ForkJoinPool.commonPool());
+   }
+   
+   /**
+    * Finds all scorable words on each of the given boards as above, solving
+    * them on the given executor, which stays owned by the caller.
+    * @throws IllegalArgumentException if executor is null
+    */
+   public SolveResult solveAll(List<String[]> boards, final int minimumWordLength,
+         Executor executor) {
+      if (boards == null || minimumWordLength < 1 || executor == null) {
+         throw new IllegalArgumentException();
+      }
       
-         for (int q = 0; q < breadth; q++) {
-            partOfWord = board[p][q];
-            
-            if (isValidWord(partOfWord) && partOfWord.length() >= minimumWordLength) {
-               boardWords.add(partOfWord);
-            }
-            
-            if (isValidPrefix(partOfWord)) {
-               Position wordLocated = new Position(p,q);
-               track2.add(wordLocated);
-               depthFirst2(p, q, minimumWordLength); 
-               track2.remove(wordLocated);
-            }
+      final Lexicon shared = getLexicon();
+      long start = System.nanoTime();
+      List<CompletableFuture<SortedSet<String>>> solving =
+         new ArrayList<CompletableFuture<SortedSet<String>>>();
+      for (final String[] letterArray : boards) {
+         if (letterArray == null) {
+            throw new IllegalArgumentException();
          }
+         solving.add(CompletableFuture.supplyAsync(() -> {
+            searchGame game = new searchGame(shared);
+            game.setBoard(letterArray);
+            return game.solve(0, game.board.cells.length, minimumWordLength);
+         }, executor));
       }
       
-      return boardWords;
+      List<SortedSet<String>> words = new ArrayList<SortedSet<String>>();
+      try {
+         for (CompletableFuture<SortedSet<String>> f : solving) {
+            words.add(f.join());
+         }
+      }
+      catch (CompletionException e) {
+         if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+         }
+         throw new IllegalStateException(e.getCause());
+      }
+      return new SolveResult(words, System.nanoTime() - start);
    }
     // Overriding getScoreForWords method
         public int getScoreForWords(SortedSet<String> words, int minimumWordLength) {
@@ -263,14 +335,25 @@ public interface WordSearchGame {
          throw new IllegalStateException();
       }
       
-      int points = 0;
+      Set<String> wanted = new HashSet<String>();
       Iterator<String> itr = words.iterator();
       
       while (itr.hasNext()) {
          String word = itr.next();
          
-         if (word.length() >= minimumWordLength && isValidWord(word)
-             && !isOnBoard(word).isEmpty()) {
+         if (word.length() >= minimumWordLength && isValidWord(word)) {
+            wanted.add(word.toUpperCase());
+         }
+      }
+      
+      Set<String> onBoard = findOnBoard(wanted);
+      int points = 0;
+      itr = words.iterator();
+      
+      while (itr.hasNext()) {
+         String word = itr.next();
+         
+         if (word.length() >= minimumWordLength && onBoard.contains(word.toUpperCase())) {
             points += (word.length() - minimumWordLength) + 1;
          }
       }
@@ -303,13 +386,7 @@ public interface WordSearchGame {
       }
       
       prefixToCheck = prefixToCheck.toUpperCase();
-      String word = lexicon.ceiling(prefixToCheck);
-      
-      if (word != null) {
-         return word.startsWith(prefixToCheck);
-      }
-      
-      return false;
+      return lexicon.hasPrefix(prefixToCheck);
    }
 // Overriding isOnBoard method
      public List<Integer> isOnBoard(String wordToCheck) {
@@ -322,194 +399,368 @@ public interface WordSearchGame {
          throw new IllegalStateException();
       }
       
-      track2 = new ArrayList<Position>();
       wordToCheck = wordToCheck.toUpperCase();
-      partOfWord = "";
-      track1 = new ArrayList<Integer>();
+      List<Integer> track = new ArrayList<Integer>();
+      search.clear();
       
-      for (int p = 0; p < height; p++) {
+      for (int cell = 0; cell < board.cells.length; cell++) {
       
-         for (int q = 0; q < breadth; q++) {
+         if (wordToCheck.equals(board.cells[cell])) {
+            track.add(cell);
+            return track;
+         }
          
-            if (wordToCheck.equals(board[p][q])) {
-               track1.add(p * breadth + q);
-               return track1;
-            }
+         if (wordToCheck.startsWith(board.cells[cell])) {
+            search.push(cell, board.cells[cell]);
             
-            if (wordToCheck.startsWith(board[p][q])) {
-               Position wordLocated = new Position(p, q);
-               track2.add(wordLocated);
-               partOfWord = board[p][q];
-               depthFirst1(p, q, wordToCheck);
-               
-               if (!wordToCheck.equals(partOfWord)) {
-                  track2.remove(wordLocated);
-               }
-               else {
-                  for (Position n: track2) {
-                     track1.add((n.a * breadth) + n.b);
-                  } 
-                  
-                  return track1;
+            if (depthFirst1(cell, wordToCheck)) {
+               for (int i = 0; i < search.depth; i++) {
+                  track.add(search.path[i]);
                }
+               search.clear();
+               return track;
             }
+            search.pop();
          }
       }
-      return track1;
+      return track;
    }
    
   /**
-   * Depth-First Search.
-   * @param a  is position in a row
-   * @param b is position in column
+   * Depth-First Search for one word. Extends the current path by every
+   * unvisited neighbour whose contents continue checkWord.
+   * @param cell is the last cell of the path
    * @param checkWord to check for the word
+   * @return true if the path now spells checkWord, which is then left on
+   *    the search stack
    */
-   private void depthFirst1(int a, int b, String checkWord) {
-      Position first = new Position(a, b);
-      unSearched();
-      searched();
-       for (Position n: first.otherValues()) {
-         if (!isSearched(n)) {
-            search(n);            
-            if (checkWord.startsWith(partOfWord + board[n.a][n.b])) {
-               partOfWord += board[n.a][n.b];
-               track2.add(n);
-               depthFirst1(n.a, n.b, checkWord);
-               
-               if (checkWord.equals(partOfWord)) {
-                  return;
-               }
-               else {
-                  track2.remove(n);
-               
-                  int indexOfLast = partOfWord.length() - board[n.a][n.b].length();
-                  partOfWord = partOfWord.substring(0, indexOfLast);
-               }
+   private boolean depthFirst1(int cell, String checkWord) {
+      for (int k = board.firstNeighbour[cell]; k < board.firstNeighbour[cell + 1]; k++) {
+         int n = board.neighbours[k];
+         if (!search.isVisited(n) && checkWord.startsWith(board.cells[n], search.length)) {
+            search.push(n, board.cells[n]);
+            if (depthFirst1(n, checkWord) || search.length == checkWord.length()) {
+               return true;
             }
+            search.pop();
          }
       }
-      unSearched();
-      searched();
+      return false;
    }
    
   /**
- * Depth-First Search.
-   * @param a  is position in a row
-   * @param b is position in column
+   * Finds, on the calling thread, every word whose path starts in one of
+   * the cells [from, to).
+   * @param from is the first starting cell
+   * @param to is one past the last starting cell
+   * @param least is the minimum word length
+   * @return the words found
    */
-      private void depthFirst2(int a, int b, int least) {
-      Position first = new Position(a, b);
-      unSearched();
-      searched();
-      for (Position n : first.otherValues()) {
-         if (!isSearched(n)) {
-            search(n);     
-            if (isValidPrefix(partOfWord + board[n.a][n.b])) {
-               partOfWord += board[n.a][n.b];
-               track2.add(n);
-               
-               if (isValidWord(partOfWord) && partOfWord.length() >= least) {
-                  boardWords.add(partOfWord);
-               }
-               
-               depthFirst2(n.a, n.b, least);
-               track2.remove(n);
-               int indexOfLast = partOfWord.length() - board[n.a][n.b].length();
-               partOfWord = partOfWord.substring(0, indexOfLast);
-            }
-         }
+   private SortedSet<String> solve(int from, int to, int least) {
+      SortedSet<String> boardWords = new TreeSet<String>();
+      Search path = new Search(board);
+      for (int cell = from; cell < to; cell++) {
+         searchFrom(cell, least, path, boardWords);
       }
-      
-      unSearched();
-      searched();
+      return boardWords;
    }
-
-   /**
-   * MarksunSearched positions.
-   */
    
-   private void unSearched() {
-      searched = new boolean[breadth][height];
-      for (boolean[] line : searched) {
-         Arrays.fill(line, false);
+  /**
+   * Finds every word whose path starts at the given cell.
+   * @param cell is the starting cell
+   * @param least is the minimum word length
+   * @param path is the search state to use, with an empty path
+   * @param boardWords collects the words found
+   */
+   private void searchFrom(int cell, int least, Search path, SortedSet<String> boardWords) {
+      int node = advance(lexicon.root(), board.upper[cell]);
+      
+      if (node >= 0) {
+         path.push(cell, board.cells[cell]);
+         
+         if (lexicon.isWord(node) && path.length >= least) {
+            boardWords.add(path.word());
+         }
+         
+         depthFirst2(cell, least, node, path, boardWords);
+         path.pop();
       }
    }
    
-   /**
-   * Creates searched path.
+  /**
+   * Depth-First Search for every word. Extends the current path by every
+   * unvisited neighbour that keeps it a prefix of some word.
+   * @param cell is the last cell of the path
+   * @param least is the minimum word length
+   * @param node is the lexicon node of the current path
+   * @param path is the search state holding the current path
+   * @param boardWords collects the words found
    */
-   
-   private void searched() {
-      for (int p = 0; p < track2.size(); p++) {
-         search(track2.get(p));
+   private void depthFirst2(int cell, int least, int node, Search path,
+         SortedSet<String> boardWords) {
+      for (int k = board.firstNeighbour[cell]; k < board.firstNeighbour[cell + 1]; k++) {
+         int n = board.neighbours[k];
+         if (!path.isVisited(n)) {
+            int next = advance(node, board.upper[n]);
+            if (next >= 0) {
+               path.push(n, board.cells[n]);
+               
+               if (lexicon.isWord(next) && path.length >= least) {
+                  boardWords.add(path.word());
+               }
+               
+               depthFirst2(n, least, next, path, boardWords);
+               path.pop();
+            }
+         }
       }
    }
    
    /**
-    * Creates an (a, b) position.
+    * Finds the words that start in the cells [from, to). Ranges larger than
+    * grain cells are split in half and solved in parallel; each range that
+    * is solved directly gets its own search state, so tasks share nothing
+    * but the board and lexicon, which they only read. The words found by
+    * the halves are merged on the way back up.
     */
-    
-   private class Position {
-      int a;
-      int b;
+   private class Solve extends RecursiveTask<SortedSet<String>> {
+      private static final long serialVersionUID = 1L;
+      private final int from;
+      private final int to;
+      private final int least;
+      private final int grain;
    
       /** Constructor. */
-      public Position(int a, int b) {
-         this.a = a;
-         this.b = b;
+      Solve(int from, int to, int least, int grain) {
+         this.from = from;
+         this.to = to;
+         this.least = least;
+         this.grain = grain;
       }
    
-      /** Returns a string representation of this Position. */
       @Override
-      public String toString() {
-         return "(" + a + ", " + b + ")";
+      protected SortedSet<String> compute() {
+         if (to - from <= grain) {
+            return solve(from, to, least);
+         }
+         int middle = (from + to) >>> 1;
+         Solve right = new Solve(middle, to, least, grain);
+         right.fork();
+         SortedSet<String> boardWords = new Solve(from, middle, least, grain).compute();
+         boardWords.addAll(right.join());
+         return boardWords;
       }
+   }
+
+  /**
+   * Finds which of the given words are on the board in a single walk: the
+   * words go into a trie of their own, and one depth-first search from
+   * every cell follows the board only while its path is a prefix of one of
+   * them. Cells are matched as given, exactly as isOnBoard does.
+   * @param wanted the upper-cased words to look for
+   * @return the words found on the board
+   */
+   private Set<String> findOnBoard(Set<String> wanted) {
+      Set<String> found = new HashSet<String>();
+      if (wanted.isEmpty()) {
+         return found;
+      }
+      Lexicon trie = new TrieLexicon(wanted);
+      Search path = new Search(board);
+      for (int cell = 0; cell < board.cells.length && found.size() < wanted.size(); cell++) {
+         int node = trie.walk(trie.root(), board.cells[cell]);
+         if (node >= 0) {
+            path.push(cell, board.cells[cell]);
+            if (trie.isWord(node)) {
+               found.add(path.word());
+            }
+            depthFirst3(cell, trie, node, path, found);
+            path.pop();
+         }
+      }
+      return found;
+   }
    
-      /** Returns all the neighbors of this Position. */
-      public Position[] otherValues() {
-      
-         Position[] sideValues = new Position[MAX_CHARACTERS];
-         int numOtherValues = 0;
-         Position n;
-         
-         for (int p = -1; p <= 1; p++) {
-            for (int q = -1; q <= 1; q++) {
-               if (!((p == 0) && (q == 0))) {
-                  n = new Position(a + p, b + q);
-                  if (isValid(n)) {
-                     sideValues[numOtherValues++] = n;
-                  }
+  /**
+   * Depth-First Search for the words of a trie. Extends the current path by
+   * every unvisited neighbour that keeps it a prefix of one of them.
+   * @param cell is the last cell of the path
+   * @param trie holds the words looked for
+   * @param node is the trie node of the current path
+   * @param path is the search state holding the current path
+   * @param found collects the words found
+   */
+   private void depthFirst3(int cell, Lexicon trie, int node, Search path, Set<String> found) {
+      for (int k = board.firstNeighbour[cell]; k < board.firstNeighbour[cell + 1]; k++) {
+         int n = board.neighbours[k];
+         if (!path.isVisited(n)) {
+            int next = trie.walk(node, board.cells[n]);
+            if (next >= 0) {
+               path.push(n, board.cells[n]);
+               if (trie.isWord(next)) {
+                  found.add(path.word());
                }
+               depthFirst3(n, trie, next, path, found);
+               path.pop();
             }
          }
-         return Arrays.copyOf(sideValues, numOtherValues);
       }
    }
 
+  /**
+   * Steps the lexicon from node through the upper-cased characters of a
+   * board cell.
+   * @param node is the lexicon node to start from
+   * @param cell is the upper-cased contents of the cell
+   * @return the node reached, or -1 if no word continues that way
+   */
+   private int advance(int node, char[] cell) {
+      for (int i = 0; i < cell.length && node >= 0; i++) {
+         node = lexicon.step(node, cell[i]);
+      }
+      return node;
+   }
+
+  /**
+   * Makes letters, a side x side board in row-major order, the current
+   * board, and sizes the search state for it.
+   */
+   private void useBoard(String[] letters, int side) {
+      board = new Board(letters, side);
+      breadth = side;
+      height = side;
+      search = new Search(board);
+   }
+   
    /**
-    * Checks for valid position.
-    * @param n the position
+    * The words found on a batch of boards, and how fast they were found.
     */
-    
-   private boolean isValid(Position n) {
-      return (n.a >= 0) && (n.a < breadth) && (n.b >= 0) && (n.b < height);
+   public static class SolveResult {
+      private final List<SortedSet<String>> words;
+      private final long elapsedNanos;
+   
+      /** Constructor. */
+      SolveResult(List<SortedSet<String>> words, long elapsedNanos) {
+         this.words = words;
+         this.elapsedNanos = elapsedNanos;
+      }
+   
+      /** Returns the scorable words of each board, in the order given. */
+      public List<SortedSet<String>> getWords() {
+         return words;
+      }
+   
+      /** Returns the number of boards solved. */
+      public int getBoardCount() {
+         return words.size();
+      }
+   
+      /** Returns the wall-clock time taken, in nanoseconds. */
+      public long getElapsedNanos() {
+         return elapsedNanos;
+      }
+   
+      /** Returns the number of boards solved per second. */
+      public double getBoardsPerSecond() {
+         return elapsedNanos == 0 ? 0 : words.size() * 1e9 / elapsedNanos;
+      }
    }
-
+   
    /**
-    * Checks if a position has been searched.
-    * @param n the position
+    * The board as flat arrays: the contents of every cell, as given and
+    * upper-cased, and a neighbour table in which the neighbours of cell c
+    * are neighbours[firstNeighbour[c] .. firstNeighbour[c + 1]).
     */
-    
-   private boolean isSearched(Position n) {
-      return searched[n.a][n.b];
+   private static class Board {
+      final String[] cells;
+      final char[][] upper;
+      final int[] firstNeighbour;
+      final int[] neighbours;
+      final int chars;
+   
+      /** Constructor. */
+      Board(String[] cells, int side) {
+         this.cells = cells;
+         upper = new char[cells.length][];
+         firstNeighbour = new int[cells.length + 1];
+         int[] table = new int[cells.length * MAX_CHARACTERS];
+         int count = 0;
+         int total = 0;
+         for (int a = 0; a < side; a++) {
+            for (int b = 0; b < side; b++) {
+               int cell = a * side + b;
+               upper[cell] = cells[cell].toUpperCase().toCharArray();
+               total += cells[cell].length();
+               firstNeighbour[cell] = count;
+               for (int p = -1; p <= 1; p++) {
+                  for (int q = -1; q <= 1; q++) {
+                     if (!((p == 0) && (q == 0)) && a + p >= 0 && a + p < side
+                        && b + q >= 0 && b + q < side) {
+                        table[count++] = (a + p) * side + (b + q);
+                     }
+                  }
+               }
+            }
+         }
+         firstNeighbour[cells.length] = count;
+         neighbours = Arrays.copyOf(table, count);
+         chars = total;
+      }
    }
-
+   
    /**
-    * Marks this position as searched.
+    * State of one depth-first search: the path as a stack of cells, the
+    * cells on it as a bit mask, and the characters it spells. Everything is
+    * sized for the board up front, so pushing and popping never allocate.
     */
-    
-   private void search(Position n) {
-      searched[n.a][n.b] = true;
+   private static class Search {
+      final long[] visited;
+      final int[] path;
+      final int[] lengthBefore;
+      final char[] chars;
+      int depth;
+      int length;
+   
+      /** Constructor. */
+      Search(Board board) {
+         visited = new long[(board.cells.length + 63) >>> 6];
+         path = new int[board.cells.length];
+         lengthBefore = new int[board.cells.length];
+         chars = new char[board.chars];
+      }
+   
+      /** Returns true if cell is on the path. */
+      boolean isVisited(int cell) {
+         return (visited[cell >>> 6] & (1L << cell)) != 0;
+      }
+   
+      /** Adds cell, holding text, to the end of the path. */
+      void push(int cell, String text) {
+         visited[cell >>> 6] |= 1L << cell;
+         path[depth] = cell;
+         lengthBefore[depth++] = length;
+         text.getChars(0, text.length(), chars, length);
+         length += text.length();
+      }
+   
+      /** Removes the last cell of the path. */
+      void pop() {
+         int cell = path[--depth];
+         visited[cell >>> 6] &= ~(1L << cell);
+         length = lengthBefore[depth];
+      }
+   
+      /** Empties the path. */
+      void clear() {
+         while (depth > 0) {
+            pop();
+         }
+      }
+   
+      /** Returns the word the path spells. */
+      String word() {
+         return new String(chars, 0, length);
+      }
    }
 }
 }
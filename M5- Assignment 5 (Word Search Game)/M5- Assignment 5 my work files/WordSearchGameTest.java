@@ -0,0 +1,447 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * WordSearchGameTest.java
+ * JUnit tests for the searchGame class, checked against PositionGame, the
+ * original Position-based search that it replaced.
+ */
+public class WordSearchGameTest {
+
+   private static final List<String> WORDS = Arrays.asList(
+      "A", "AN", "ACE", "ALE", "ALP", "APE", "BE", "BEE", "BEEN", "BEET", "BELT",
+      "BENT", "BET", "BONE", "BOY", "CAPE", "EEL", "ELAN", "HEN", "LANE", "LEAP",
+      "LEAN", "NOB", "NOTE", "OBEY", "OPEN", "PACE", "PEACE", "PLACE", "PLANE",
+      "POET", "QUEEN", "QUOTE", "TOE", "TOY", "TONE", "YET", "LEE", "HALE", "NET",
+      "TEN", "QUEST", "STAB", "SPACE", "SNAP", "PANE", "BAN", "BANE", "LEAPT",
+      "AA", "AAA", "AAAA", "AAAAA");
+
+   private static final String[] DEFAULT_BOARD = {
+      "E", "E", "C", "A",
+      "A", "L", "E", "P",
+      "H", "N", "B", "O",
+      "Q", "T", "T", "Y"};
+
+   private static final String[] QU_BOARD = {
+      "qu", "E", "E", "N",
+      "O", "T", "A", "L",
+      "B", "Y", "N", "E",
+      "S", "P", "A", "C"};
+
+   private static final String[][] BOARDS = {
+      DEFAULT_BOARD, QU_BOARD, {"A", "A", "A", "A"}, {"A"}, {},
+      {"P", "L", "A", "C", "E", "B", "N", "T", "O"},
+   };
+
+   /** Test case for the default board of a new game. */
+   @Test
+   public void testDefaultBoard() {
+      WordSearchGame game = newGame();
+      assertEquals("\ngetAllScorableWords(3)\n",
+         new PositionGame(WORDS, DEFAULT_BOARD).getAllScorableWords(3).toString(),
+         game.getAllScorableWords(3).toString());
+   }
+
+   /** Test case for every board and minimum length against PositionGame. */
+   @Test
+   public void testAgreesWithPositionGame() {
+      WordSearchGame game = newGame();
+      for (String[] letters : BOARDS) {
+         game.setBoard(letters);
+         PositionGame reference = new PositionGame(WORDS, letters);
+         for (int least = 1; least <= 6; least++) {
+            assertEquals("\n" + Arrays.toString(letters) + ", getAllScorableWords(" + least + ")\n",
+               reference.getAllScorableWords(least).toString(),
+               game.getAllScorableWords(least).toString());
+         }
+      }
+   }
+
+   /** Test case for cells that are not used twice in one word. */
+   @Test
+   public void testNoCellReused() {
+      WordSearchGame game = newGame();
+      game.setBoard(new String[] {"A", "A", "A", "A"});
+      assertEquals("\ngetAllScorableWords(1)\n", "[A, AA, AAA, AAAA]",
+         game.getAllScorableWords(1).toString());
+   }
+
+   /**
+    * Test case for boards of more than 64 cells, which the fork-join solve
+    * splits into many ranges of starting cells.
+    */
+   @Test
+   public void testLargeBoards() {
+      WordSearchGame game = newGame();
+      for (int side : new int[] {8, 9, 12}) {
+         // copies of QU_BOARD side by side, so words also cross the seams
+         String[] board = new String[side * side];
+         for (int i = 0; i < board.length; i++) {
+            board[i] = QU_BOARD[i / side % 4 * 4 + i % side % 4];
+         }
+         game.setBoard(board);
+         PositionGame reference = new PositionGame(WORDS, board);
+         for (int least = 1; least <= 4; least += 3) {
+            assertEquals("\n" + side + " x " + side + ", getAllScorableWords(" + least + ")\n",
+               reference.getAllScorableWords(least).toString(),
+               game.getAllScorableWords(least).toString());
+         }
+      }
+   }
+
+   /** Test case for solving a batch of boards on the common pool. */
+   @Test
+   public void testSolveAll() {
+      WordSearchGame.searchGame game = newGame();
+      String before = game.getBoard();
+      WordSearchGame.searchGame.SolveResult result = game.solveAll(Arrays.asList(BOARDS), 3);
+      assertSolved(result, 3);
+      assertEquals("\ngetBoard after solveAll\n", before, game.getBoard());
+   }
+
+   /** Test case for solving a batch of boards on a caller's executor. */
+   @Test
+   public void testSolveAllOnExecutor() {
+      ExecutorService executor = Executors.newFixedThreadPool(3);
+      try {
+         WordSearchGame.searchGame game = newGame();
+         for (int least = 1; least <= 4; least++) {
+            assertSolved(game.solveAll(Arrays.asList(BOARDS), least, executor), least);
+         }
+         assertEquals("\nexecutor shut down by solveAll\n", false, executor.isShutdown());
+      }
+      finally {
+         executor.shutdown();
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testSolveAllNullBoard() {
+      newGame().solveAll(Arrays.asList(DEFAULT_BOARD, null), 3);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testSolveAllNullExecutor() {
+      newGame().solveAll(Arrays.<String[]>asList(DEFAULT_BOARD), 3, null);
+   }
+
+   /** Test case for a submission scored by hand. */
+   @Test
+   public void testScoreForWords() {
+      WordSearchGame game = newGame();
+      SortedSet<String> words = new TreeSet<String>(
+         Arrays.asList("PEACE", "leap", "ACE", "AN", "QUEST", "ZZZ"));
+      // PEACE 3, LEAP 2, ACE 1; AN is too short, QUEST is not on the
+      // board, and ZZZ is not a word
+      assertEquals("\ngetScoreForWords(" + words + ", 3)\n", 6,
+         game.getScoreForWords(words, 3));
+   }
+
+   /** Test case for scores of every board against PositionGame. */
+   @Test
+   public void testScoreAgreesWithPositionGame() {
+      WordSearchGame game = newGame();
+      SortedSet<String> words = new TreeSet<String>(WORDS);
+      words.addAll(Arrays.asList("queen", "Pace", "quOTE", "EELE", "CELEB", ""));
+      for (String[] letters : BOARDS) {
+         game.setBoard(letters);
+         PositionGame reference = new PositionGame(WORDS, letters);
+         for (int least = 1; least <= 5; least++) {
+            assertEquals("\n" + Arrays.toString(letters) + ", getScoreForWords(" + least + ")\n",
+               reference.getScoreForWords(words, least), game.getScoreForWords(words, least));
+         }
+      }
+   }
+
+   /** Test case for isOnBoard paths against PositionGame. */
+   @Test
+   public void testIsOnBoard() {
+      WordSearchGame game = newGame();
+      List<String> probes = new ArrayList<String>(WORDS);
+      probes.addAll(Arrays.asList("", "QUO", "qUoTe", "ZZZ", "EELE", "CELEB"));
+      for (String[] letters : BOARDS) {
+         game.setBoard(letters);
+         PositionGame reference = new PositionGame(WORDS, letters);
+         for (String word : probes) {
+            String feedback = "\n" + Arrays.toString(letters) + ", isOnBoard(" + word + ")\n";
+            List<Integer> path = game.isOnBoard(word);
+            assertEquals(feedback, reference.isOnBoard(word).isEmpty(), path.isEmpty());
+            if (!path.isEmpty()) {
+               assertSpells(feedback, letters, path, word.toUpperCase());
+            }
+         }
+      }
+   }
+
+   /** Test case for prefix and word checks that ignore case. */
+   @Test
+   public void testValidWordAndPrefix() {
+      WordSearchGame game = newGame();
+      assertTrue("\nisValidWord(queen)\n", game.isValidWord("queen"));
+      assertTrue("\nisValidPrefix(Que)\n", game.isValidPrefix("Que"));
+      assertEquals("\nisValidWord(QUE)\n", false, game.isValidWord("QUE"));
+      assertEquals("\nisValidPrefix(QX)\n", false, game.isValidPrefix("QX"));
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testNoLexicon() {
+      new WordSearchGame.searchGame().getAllScorableWords(3);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testBoardNotSquare() {
+      newGame().setBoard(new String[] {"A", "B", "C"});
+   }
+
+   private static WordSearchGame.searchGame newGame() {
+      return new WordSearchGame.searchGame(new TrieLexicon(WORDS));
+   }
+
+   /**
+    * Checks that result holds the words of every board of BOARDS, in order.
+    */
+   private static void assertSolved(WordSearchGame.searchGame.SolveResult result, int least) {
+      assertEquals("\ngetBoardCount\n", BOARDS.length, result.getBoardCount());
+      for (int i = 0; i < BOARDS.length; i++) {
+         assertEquals("\nsolveAll(" + least + "), board " + Arrays.toString(BOARDS[i]) + "\n",
+            new PositionGame(WORDS, BOARDS[i]).getAllScorableWords(least).toString(),
+            result.getWords().get(i).toString());
+      }
+   }
+
+   /**
+    * Checks that path is a walk of distinct adjacent cells of the square
+    * board letters whose contents spell word.
+    */
+   private static void assertSpells(String feedback, String[] letters, List<Integer> path,
+         String word) {
+      int side = (int) Math.sqrt(letters.length);
+      StringBuilder spelled = new StringBuilder();
+      for (int i = 0; i < path.size(); i++) {
+         int cell = path.get(i);
+         spelled.append(letters[cell]);
+         if (i > 0) {
+            int previous = path.get(i - 1);
+            assertTrue(feedback + "cells " + previous + " and " + cell + " not adjacent\n",
+               Math.abs(cell / side - previous / side) <= 1
+               && Math.abs(cell % side - previous % side) <= 1);
+         }
+      }
+      assertEquals(feedback + "cells used twice\n", path.size(),
+         new HashSet<Integer>(path).size());
+      assertEquals(feedback + "spelled\n", word, spelled.toString());
+   }
+
+   /**
+    * The search of the original game, kept as the reference: a TreeSet
+    * lexicon and a depth-first search over Position objects that rebuilds
+    * its searched grid from the path at every step.
+    */
+   static class PositionGame {
+      private static final int MAX_CHARACTERS = 8;
+      private final TreeSet<String> lexicon = new TreeSet<String>();
+      private final String[][] board;
+      private final int breadth;
+      private final int height;
+      private boolean[][] searched;
+      private ArrayList<Integer> track1;
+      private String partOfWord;
+      private SortedSet<String> boardWords;
+      private ArrayList<Position> track2;
+
+      /** Constructor. */
+      PositionGame(Collection<String> words, String[] letterArray) {
+         for (String word : words) {
+            lexicon.add(word.toUpperCase());
+         }
+         int a = (int) Math.sqrt(letterArray.length);
+         board = new String[a][a];
+         breadth = a;
+         height = a;
+         int i = 0;
+         for (int p = 0; p < height; p++) {
+            for (int q = 0; q < breadth; q++) {
+               board[p][q] = letterArray[i];
+               i++;
+            }
+         }
+      }
+
+      SortedSet<String> getAllScorableWords(int minimumWordLength) {
+         track2 = new ArrayList<Position>();
+         boardWords = new TreeSet<String>();
+         for (int p = 0; p < height; p++) {
+            for (int q = 0; q < breadth; q++) {
+               partOfWord = board[p][q];
+               if (isValidWord(partOfWord) && partOfWord.length() >= minimumWordLength) {
+                  boardWords.add(partOfWord);
+               }
+               if (isValidPrefix(partOfWord)) {
+                  Position wordLocated = new Position(p, q);
+                  track2.add(wordLocated);
+                  depthFirst2(p, q, minimumWordLength);
+                  track2.remove(wordLocated);
+               }
+            }
+         }
+         return boardWords;
+      }
+
+      int getScoreForWords(Set<String> words, int minimumWordLength) {
+         int points = 0;
+         for (String word : words) {
+            if (word.length() >= minimumWordLength && isValidWord(word)
+               && !isOnBoard(word).isEmpty()) {
+               points += (word.length() - minimumWordLength) + 1;
+            }
+         }
+         return points;
+      }
+
+      boolean isValidWord(String wordToCheck) {
+         return lexicon.contains(wordToCheck.toUpperCase());
+      }
+
+      boolean isValidPrefix(String prefixToCheck) {
+         prefixToCheck = prefixToCheck.toUpperCase();
+         String word = lexicon.ceiling(prefixToCheck);
+         return word != null && word.startsWith(prefixToCheck);
+      }
+
+      List<Integer> isOnBoard(String wordToCheck) {
+         track2 = new ArrayList<Position>();
+         wordToCheck = wordToCheck.toUpperCase();
+         track1 = new ArrayList<Integer>();
+         for (int p = 0; p < height; p++) {
+            for (int q = 0; q < breadth; q++) {
+               if (wordToCheck.equals(board[p][q])) {
+                  track1.add(p * breadth + q);
+                  return track1;
+               }
+               if (wordToCheck.startsWith(board[p][q])) {
+                  Position wordLocated = new Position(p, q);
+                  track2.add(wordLocated);
+                  partOfWord = board[p][q];
+                  depthFirst1(p, q, wordToCheck);
+                  if (!wordToCheck.equals(partOfWord)) {
+                     track2.remove(wordLocated);
+                  }
+                  else {
+                     for (Position n : track2) {
+                        track1.add((n.a * breadth) + n.b);
+                     }
+                     return track1;
+                  }
+               }
+            }
+         }
+         return track1;
+      }
+
+      private void depthFirst1(int a, int b, String checkWord) {
+         Position first = new Position(a, b);
+         unSearched();
+         searched();
+         for (Position n : first.otherValues()) {
+            if (!isSearched(n)) {
+               search(n);
+               if (checkWord.startsWith(partOfWord + board[n.a][n.b])) {
+                  partOfWord += board[n.a][n.b];
+                  track2.add(n);
+                  depthFirst1(n.a, n.b, checkWord);
+                  if (checkWord.equals(partOfWord)) {
+                     return;
+                  }
+                  track2.remove(n);
+                  partOfWord = partOfWord.substring(0,
+                     partOfWord.length() - board[n.a][n.b].length());
+               }
+            }
+         }
+         unSearched();
+         searched();
+      }
+
+      private void depthFirst2(int a, int b, int least) {
+         Position first = new Position(a, b);
+         unSearched();
+         searched();
+         for (Position n : first.otherValues()) {
+            if (!isSearched(n)) {
+               search(n);
+               if (isValidPrefix(partOfWord + board[n.a][n.b])) {
+                  partOfWord += board[n.a][n.b];
+                  track2.add(n);
+                  if (isValidWord(partOfWord) && partOfWord.length() >= least) {
+                     boardWords.add(partOfWord);
+                  }
+                  depthFirst2(n.a, n.b, least);
+                  track2.remove(n);
+                  partOfWord = partOfWord.substring(0,
+                     partOfWord.length() - board[n.a][n.b].length());
+               }
+            }
+         }
+         unSearched();
+         searched();
+      }
+
+      private void unSearched() {
+         searched = new boolean[breadth][height];
+      }
+
+      private void searched() {
+         for (Position n : track2) {
+            search(n);
+         }
+      }
+
+      private boolean isSearched(Position n) {
+         return searched[n.a][n.b];
+      }
+
+      private void search(Position n) {
+         searched[n.a][n.b] = true;
+      }
+
+      /** An (a, b) position. */
+      private class Position {
+         final int a;
+         final int b;
+
+         Position(int a, int b) {
+            this.a = a;
+            this.b = b;
+         }
+
+         /** Returns all the neighbors of this Position. */
+         Position[] otherValues() {
+            Position[] sideValues = new Position[MAX_CHARACTERS];
+            int numOtherValues = 0;
+            for (int p = -1; p <= 1; p++) {
+               for (int q = -1; q <= 1; q++) {
+                  Position n = new Position(a + p, b + q);
+                  if (!(p == 0 && q == 0) && n.a >= 0 && n.a < breadth
+                     && n.b >= 0 && n.b < height) {
+                     sideValues[numOtherValues++] = n;
+                  }
+               }
+            }
+            return Arrays.copyOf(sideValues, numOtherValues);
+         }
+      }
+   }
+}